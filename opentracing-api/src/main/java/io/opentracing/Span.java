@@ -55,6 +55,21 @@ public interface Span extends Closeable {
 
     void close();
 
+    /**
+     * Returns whether data set on this Span is recorded at all.
+     *
+     * <p>Noop or unsampled spans discard tags, logs and the like. Instrumentation may check this before computing
+     * expensive values, e.g. the SQL text for {@link io.opentracing.tag.Tags#DB_STATEMENT}:
+     * <pre>{@code
+     if (span.isRecording()) {
+         Tags.DB_STATEMENT.set(span, renderSql(query));
+     }
+     }</pre>
+     *
+     * @return true if this Span records its data, false if it is discarded
+     */
+    boolean isRecording();
+
     /**
      * Set a key:value tag on the Span.
      */
@@ -67,6 +82,15 @@ public interface Span extends Closeable {
     /** Same as {@link #setTag(String, String)}, but for numeric values. */
     Span setTag(String key, Number value);
 
+    /**
+     * Same as {@link #setTag(String, String)}, but the value is only computed if and when the Span is recorded.
+     *
+     * @param value supplies a String, Boolean or Number value; never called if the Span is not recording
+     * @return the Span, for chaining
+     * @see ValueSupplier
+     */
+    Span setTag(String key, ValueSupplier<?> value);
+
     /**
      * Log key:value pairs to the Span with the current walltime timestamp.
      *
@@ -105,6 +129,26 @@ public interface Span extends Closeable {
      */
     Span log(long timestampMicroseconds, Map<String, ?> fields);
 
+    /**
+     * Same as {@link #log(Map)}, but the fields are only computed if and when the Span is recorded.
+     *
+     * @param fields supplies key:value log fields; never called if the Span is not recording
+     * @return the Span, for chaining
+     * @see ValueSupplier
+     */
+    Span log(ValueSupplier<? extends Map<String, ?>> fields);
+
+    /**
+     * Same as {@link #log(long, Map)}, but the fields are only computed if and when the Span is recorded.
+     *
+     * @param timestampMicroseconds The explicit timestamp for the log record. Must be greater than or equal to the
+     *                              Span's start timestamp.
+     * @param fields supplies key:value log fields; never called if the Span is not recording
+     * @return the Span, for chaining
+     * @see ValueSupplier
+     */
+    Span log(long timestampMicroseconds, ValueSupplier<? extends Map<String, ?>> fields);
+
     /**
      * Record an event at the current walltime timestamp.
      *
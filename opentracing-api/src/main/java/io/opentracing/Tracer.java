@@ -88,6 +88,17 @@ public interface Tracer {
      */
     <C> SpanContext extract(Format<C> format, C carrier);
 
+    /**
+     * Returns whether this Tracer records Spans at all.
+     *
+     * <p>A disabled Tracer (e.g. a noop implementation) only creates Spans for which {@link Span#isRecording()} is
+     * false, so instrumentation may skip preparing data for it altogether.
+     *
+     * @return true if Spans built by this Tracer may be recorded, false if they are always discarded
+     * @see Span#isRecording()
+     */
+    boolean isEnabled();
+
 
     interface SpanBuilder extends SpanContext {
 
@@ -122,6 +133,9 @@ public interface Tracer {
         /** Same as {@link Span#setTag(String, Number)}, but for the span being built. */
         SpanBuilder withTag(String key, Number value);
 
+        /** Same as {@link Span#setTag(String, ValueSupplier)}, but for the span being built. */
+        SpanBuilder withTag(String key, ValueSupplier<?> value);
+
         /** Specify a timestamp of when the Span was started, represented in microseconds since epoch. */
         SpanBuilder withStartTimestamp(long microseconds);
 
@@ -0,0 +1,35 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing;
+
+/**
+ * A lazily computed tag or log value.
+ *
+ * <p>Tracers call {@link #get()} at most once, and only if the value is actually recorded; possibly later and on
+ * another thread (e.g. when the Span is reported). Unsampled or noop Spans never call it. This is the Java 6
+ * compatible equivalent of {@code java.util.function.Supplier}, so Java 8 callers can pass a lambda:
+ * <pre>{@code
+ span.setTag(Tags.DB_STATEMENT.getKey(), () -> renderSql(query));
+ }</pre>
+ *
+ * @param <T> the type of the supplied value
+ * @see Span#setTag(String, ValueSupplier)
+ * @see Span#log(ValueSupplier)
+ */
+public interface ValueSupplier<T> {
+    /**
+     * @return the value; it must not depend on state that changes after the call that handed over this supplier
+     */
+    T get();
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Helpers for the compact binary encoding of span contexts into {@link java.nio.ByteBuffer} carriers, shared by
+ * tracer implementations. Not part of the public API.
+ *
+ * Strings are written as a varint byte length followed by their UTF-8 bytes. All methods read from and write to the
+ * buffer's current position, heap or direct, without copying through intermediate byte arrays.
+ */
+public final class ByteBufferCodec {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** Returned by the read methods for truncated or malformed input. */
+    public static final int MALFORMED = -1;
+
+    private ByteBufferCodec() {
+    }
+
+    /**
+     * Writes a non-negative int in 1 to 5 bytes, 7 bits at a time, least significant group first.
+     */
+    public static void writeVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * @return the non-negative int read, or {@link #MALFORMED} if the buffer ends early or the varint is too long
+     */
+    public static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                return MALFORMED;
+            }
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value < 0 ? MALFORMED : value;
+            }
+        }
+        return MALFORMED;
+    }
+
+    /**
+     * @return the number of bytes {@link #writeString(ByteBuffer, CharSequence)} writes for the value, including its length
+     */
+    public static int encodedLength(CharSequence value) {
+        int length = utf8Length(value);
+        return varintLength(length) + length;
+    }
+
+    /**
+     * Writes the varint UTF-8 byte length of the value followed by its UTF-8 bytes.
+     */
+    public static void writeString(ByteBuffer buffer, CharSequence value) {
+        writeVarint(buffer, utf8Length(value));
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (isSurrogate(c)) {
+                buffer.put((byte) '?'); // unpaired surrogate, as String.getBytes() does
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * @return the string read, or null if the buffer ends early or the length is malformed
+     */
+    public static String readString(ByteBuffer buffer) {
+        int length = readVarint(buffer);
+        if (length == MALFORMED || length > buffer.remaining()) {
+            return null;
+        }
+        int position = buffer.position();
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + position, length, UTF_8);
+        } else if (isAscii(buffer, position, length)) {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) buffer.get(position + i);
+            }
+            value = new String(chars);
+        } else {
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(position + length);
+            value = UTF_8.decode(slice).toString();
+        }
+        buffer.position(position + length);
+        return value;
+    }
+
+    private static boolean isAscii(ByteBuffer buffer, int position, int length) {
+        for (int i = position; i < position + length; i++) {
+            if (buffer.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int utf8Length(CharSequence value) {
+        int length = value.length();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x800) {
+                if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    length += 2; // 4 bytes for 2 chars
+                    i++;
+                } else if (!isSurrogate(c)) {
+                    length += 2;
+                }
+            } else if (c >= 0x80) {
+                length += 1;
+            }
+        }
+        return length;
+    }
+
+    private static boolean isSurrogate(char c) {
+        return c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE;
+    }
+
+    private static int varintLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,334 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.internal;
+
+/**
+ * Allocation-free encoding and decoding of 64-bit and 128-bit ids as lowercase hexadecimal or decimal, shared by tracer
+ * implementations. Not part of the public API.
+ *
+ * Ids are written into caller-provided, reusable char or byte (ASCII) arrays, and read from a CharSequence or ASCII
+ * bytes. Decoding methods do not validate; callers check the input with the corresponding {@code isHex} or
+ * {@code isDecimal} method first, so that malformed input never causes an exception.
+ */
+public final class IdCodec {
+
+    /** The number of characters of a decimal long at most, including the sign */
+    public static final int MAX_DECIMAL_LENGTH = 20;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private IdCodec() {
+    }
+
+    /**
+     * Writes the value as 16 lowercase hex characters, zero-padded.
+     */
+    public static void writeHex(long value, char[] destination, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            destination[offset + i] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    /**
+     * Writes the value as 16 lowercase hex ASCII bytes, zero-padded.
+     */
+    public static void writeHex(long value, byte[] destination, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            destination[offset + i] = (byte) HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    /**
+     * Writes a 128-bit value as 32 lowercase hex characters, zero-padded.
+     */
+    public static void writeHex128(long high, long low, char[] destination, int offset) {
+        writeHex(high, destination, offset);
+        writeHex(low, destination, offset + 16);
+    }
+
+    /**
+     * Writes the value as 2 lowercase hex characters.
+     */
+    public static void writeHexByte(int value, char[] destination, int offset) {
+        destination[offset] = HEX_DIGITS[(value >> 4) & 0xF];
+        destination[offset + 1] = HEX_DIGITS[value & 0xF];
+    }
+
+    /**
+     * @return true if the range is non-empty and only holds hex digits of either case
+     */
+    public static boolean isHex(CharSequence value, int offset, int length) {
+        if (length <= 0 || offset < 0 || offset + length > value.length()) {
+            return false;
+        }
+        for (int i = offset; i < offset + length; i++) {
+            if (hexDigit(value.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the range is non-empty and only holds lowercase hex digits, as W3C trace context requires
+     */
+    public static boolean isLowerHex(CharSequence value, int offset, int length) {
+        if (length <= 0 || offset < 0 || offset + length > value.length()) {
+            return false;
+        }
+        for (int i = offset; i < offset + length; i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the range is non-empty and only holds ASCII hex digits of either case
+     */
+    public static boolean isHex(byte[] value, int offset, int length) {
+        if (length <= 0 || offset < 0 || offset + length > value.length) {
+            return false;
+        }
+        for (int i = offset; i < offset + length; i++) {
+            if (hexDigit((char) (value[i] & 0xFF)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes up to 16 hex digits; the range must have been validated with {@link #isHex(CharSequence, int, int)}.
+     */
+    public static long parseHex(CharSequence value, int offset, int length) {
+        long result = 0;
+        for (int i = offset; i < offset + length; i++) {
+            result = (result << 4) | hexDigit(value.charAt(i));
+        }
+        return result;
+    }
+
+    /**
+     * Decodes up to 16 hex digits; the range must have been validated with {@link #isHex(byte[], int, int)}.
+     */
+    public static long parseHex(byte[] value, int offset, int length) {
+        long result = 0;
+        for (int i = offset; i < offset + length; i++) {
+            result = (result << 4) | hexDigit((char) (value[i] & 0xFF));
+        }
+        return result;
+    }
+
+    /**
+     * @return the upper 64 bits of a 128-bit id of up to 32 hex digits, 0 if it has 16 digits or less
+     */
+    public static long parseHexHigh(CharSequence value, int offset, int length) {
+        return length > 16 ? parseHex(value, offset, length - 16) : 0;
+    }
+
+    /**
+     * @return the lower 64 bits of a 128-bit id of up to 32 hex digits
+     */
+    public static long parseHexLow(CharSequence value, int offset, int length) {
+        return length > 16 ? parseHex(value, offset + length - 16, 16) : parseHex(value, offset, length);
+    }
+
+    /**
+     * @return the number of characters {@link #writeDecimal(long, char[], int)} writes for the value
+     */
+    public static int decimalLength(long value) {
+        int length = value < 0 ? 2 : 1;
+        // as a negative number, as the range of negative longs is larger
+        long remaining = value < 0 ? value : -value;
+        while (remaining <= -10) {
+            remaining /= 10;
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Writes the value in decimal, as {@link Long#toString(long)} does. Measures the value first; prefer
+     * {@link #writeDecimalBefore(long, char[], int)} where the digits may end at a fixed offset.
+     *
+     * @return the offset after the last character written
+     */
+    public static int writeDecimal(long value, char[] destination, int offset) {
+        int end = offset + decimalLength(value);
+        writeDecimalBefore(value, destination, end);
+        return end;
+    }
+
+    /**
+     * Writes the value in decimal as ASCII bytes, as {@link Long#toString(long)} does. Measures the value first; prefer
+     * {@link #writeDecimalBefore(long, byte[], int)} where the digits may end at a fixed offset.
+     *
+     * @return the offset after the last byte written
+     */
+    public static int writeDecimal(long value, byte[] destination, int offset) {
+        int end = offset + decimalLength(value);
+        writeDecimalBefore(value, destination, end);
+        return end;
+    }
+
+    /**
+     * Writes the value in decimal, as {@link Long#toString(long)} does, in a single pass from the end backwards.
+     *
+     * @param end the offset after the last character to write
+     * @return the offset of the first character written
+     */
+    public static int writeDecimalBefore(long value, char[] destination, int end) {
+        long remaining = value < 0 ? value : -value;
+        int i = end;
+        do {
+            long quotient = remaining / 10;
+            destination[--i] = (char) ('0' + (quotient * 10 - remaining));
+            remaining = quotient;
+        } while (remaining != 0);
+        if (value < 0) {
+            destination[--i] = '-';
+        }
+        return i;
+    }
+
+    /**
+     * Writes the value in decimal as ASCII bytes, as {@link Long#toString(long)} does, in a single pass from the end
+     * backwards.
+     *
+     * @param end the offset after the last byte to write
+     * @return the offset of the first byte written
+     */
+    public static int writeDecimalBefore(long value, byte[] destination, int end) {
+        long remaining = value < 0 ? value : -value;
+        int i = end;
+        do {
+            long quotient = remaining / 10;
+            destination[--i] = (byte) ('0' + (quotient * 10 - remaining));
+            remaining = quotient;
+        } while (remaining != 0);
+        if (value < 0) {
+            destination[--i] = '-';
+        }
+        return i;
+    }
+
+    /**
+     * @return true if the value is a decimal long as accepted by {@link Long#parseLong(String)}: an optional minus
+     * sign followed by at least one digit, within the range of a long
+     */
+    public static boolean isDecimal(CharSequence value) {
+        return isDecimal(value, 0, value.length());
+    }
+
+    /**
+     * @return true if the range holds a decimal long, see {@link #isDecimal(CharSequence)}
+     */
+    public static boolean isDecimal(CharSequence value, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > value.length()) {
+            return false;
+        }
+        int start = length > 0 && value.charAt(offset) == '-' ? 1 : 0;
+        if (length == start || length - start > 19) {
+            return false;
+        }
+        long result = 0;
+        for (int i = offset + start; i < offset + length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            // accumulated negatively, as the range of negative longs is larger
+            if (result < (Long.MIN_VALUE + (c - '0')) / 10) {
+                return false;
+            }
+            result = result * 10 - (c - '0');
+        }
+        return start == 1 || result != Long.MIN_VALUE;
+    }
+
+    /**
+     * @return true if the range holds a decimal long in ASCII, see {@link #isDecimal(CharSequence)}
+     */
+    public static boolean isDecimal(byte[] value, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > value.length) {
+            return false;
+        }
+        int start = length > 0 && value[offset] == '-' ? 1 : 0;
+        if (length == start || length - start > 19) {
+            return false;
+        }
+        long result = 0;
+        for (int i = offset + start; i < offset + length; i++) {
+            byte c = value[i];
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            if (result < (Long.MIN_VALUE + (c - '0')) / 10) {
+                return false;
+            }
+            result = result * 10 - (c - '0');
+        }
+        return start == 1 || result != Long.MIN_VALUE;
+    }
+
+    /**
+     * @return the decimal value, see {@link #isDecimal(CharSequence)}
+     */
+    public static long parseDecimal(CharSequence value) {
+        return parseDecimal(value, 0, value.length());
+    }
+
+    /**
+     * @return the decimal value of the range, see {@link #isDecimal(CharSequence, int, int)}
+     */
+    public static long parseDecimal(CharSequence value, int offset, int length) {
+        boolean negative = value.charAt(offset) == '-';
+        long result = 0;
+        for (int i = offset + (negative ? 1 : 0); i < offset + length; i++) {
+            result = result * 10 - (value.charAt(i) - '0');
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * @return the decimal value of the ASCII range, see {@link #isDecimal(byte[], int, int)}
+     */
+    public static long parseDecimal(byte[] value, int offset, int length) {
+        boolean negative = value[offset] == '-';
+        long result = 0;
+        for (int i = offset + (negative ? 1 : 0); i < offset + length; i++) {
+            result = result * 10 - (value[i] - '0');
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * @return the value of the hex digit, or -1 if the character is not one
+     */
+    public static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+}
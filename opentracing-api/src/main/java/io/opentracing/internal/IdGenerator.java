@@ -0,0 +1,94 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates trace and span ids, shared by tracer implementations. Not part of the public API.
+ *
+ * The {@link #random()} generator keeps SplitMix64 state per thread, so threads never contend on a shared counter.
+ * Its ids are uniformly distributed and non-zero, and trace ids can be 128 bits wide. The {@link #sequential()}
+ * generators count from 1 and are meant for deterministic tests.
+ */
+public abstract class IdGenerator {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /** Seeds each thread's state differently; only used once per thread */
+    private static final AtomicLong SEEDER = new AtomicLong(mix(System.nanoTime() ^ System.currentTimeMillis()));
+
+    private static final IdGenerator RANDOM = new IdGenerator() {
+        private final ThreadLocal<long[]> state = new ThreadLocal<long[]>() {
+            @Override
+            protected long[] initialValue() {
+                return new long[] {mix(SEEDER.getAndAdd(GOLDEN_GAMMA))};
+            }
+        };
+
+        @Override
+        public long nextId() {
+            long[] seed = state.get();
+            long id;
+            do {
+                seed[0] += GOLDEN_GAMMA;
+                id = mix(seed[0]);
+            } while (id == 0);
+            return id;
+        }
+
+        @Override
+        public long nextTraceIdHigh() {
+            return nextId();
+        }
+    };
+
+    /** @return the generator of random ids, with per-thread state */
+    public static IdGenerator random() {
+        return RANDOM;
+    }
+
+    /** @return a new generator counting from 1; trace ids are 64 bits wide */
+    public static IdGenerator sequential() {
+        final AtomicLong counter = new AtomicLong();
+        return new IdGenerator() {
+            @Override
+            public long nextId() {
+                return counter.incrementAndGet();
+            }
+
+            @Override
+            public long nextTraceIdHigh() {
+                return 0;
+            }
+        };
+    }
+
+    /**
+     * @return a non-zero span id, or the lower 64 bits of a trace id
+     */
+    public abstract long nextId();
+
+    /**
+     * @return the upper 64 bits of a 128-bit trace id, or 0 if this generator generates 64-bit trace ids
+     */
+    public abstract long nextTraceIdHigh();
+
+    /** The SplitMix64 finalizer */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+/**
+ * Codecs and id generation shared by the tracer implementations of this project, e.g. opentracing-impl and
+ * opentracing-mock.
+ *
+ * This package is public only so that those modules can use it. It is not part of the OpenTracing API and is not
+ * supported for use by applications or other tracers. Its classes may change or be removed in any release, without
+ * notice or compatibility guarantees.
+ */
+package io.opentracing.internal;
@@ -78,6 +78,16 @@ public interface Format<C> {
          */
         public final static Format<ByteBuffer> BINARY = new Builtin<ByteBuffer>("BINARY");
 
+        /**
+         * The HEADER_BLOCK format writes the same headers as HTTP_HEADERS into a write-only {@link HeaderSink}, e.g. a
+         * {@link HeaderBlockWriter} assembling a header block in a ByteBuffer. It is for Tracer.inject only.
+         *
+         * @see io.opentracing.Tracer#inject(SpanContext, Format, Object)
+         * @see Format
+         * @see Builtin#HTTP_HEADERS
+         */
+        public final static Format<HeaderSink> HEADER_BLOCK = new Builtin<HeaderSink>("HEADER_BLOCK");
+
         /**
          * @return Short name for built-in formats as they tend to show up in exception messages.
          */
@@ -0,0 +1,198 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.propagation;
+
+import io.opentracing.internal.ByteBufferCodec;
+import io.opentracing.internal.IdCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * HeaderSink carriers writing header blocks into a caller-provided ByteBuffer or Appendable, e.g. a pooled buffer of
+ * an HTTP client, without creating intermediate Strings.
+ *
+ * <ul>
+ * <li>{@link #http1(ByteBuffer)} and {@link #http1(Appendable)} write {@code name: value\r\n} lines. Characters outside
+ * of ASCII, which are not valid in headers, are written as {@code ?}. A name or value containing CR or LF is rejected
+ * with an {@link IllegalArgumentException} before anything is written, as it could inject further headers.</li>
+ * <li>{@link #lengthPrefixed(ByteBuffer)} writes name and value each as a varint byte length followed by the UTF-8
+ * bytes, for binary protocols.</li>
+ * </ul>
+ *
+ * A null name or value is rejected with an {@link IllegalArgumentException} before anything is written.
+ * Writers to a ByteBuffer start at its position and throw {@link java.nio.BufferOverflowException} if it has not enough
+ * space remaining. Writers to an Appendable throw {@link IllegalStateException} if it throws an IOException.
+ */
+public abstract class HeaderBlockWriter implements HeaderSink {
+
+    private HeaderBlockWriter() {
+    }
+
+    public static HeaderBlockWriter http1(ByteBuffer buffer) {
+        return new Http1BufferWriter(buffer);
+    }
+
+    public static HeaderBlockWriter http1(Appendable appendable) {
+        return new Http1AppendableWriter(appendable);
+    }
+
+    public static HeaderBlockWriter lengthPrefixed(ByteBuffer buffer) {
+        return new LengthPrefixedWriter(buffer);
+    }
+
+    /** @throws IllegalArgumentException if the name is null */
+    private static void checkName(CharSequence name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Header name is null");
+        }
+    }
+
+    /** @throws IllegalArgumentException if the name or value is null */
+    private static void checkNotNull(CharSequence name, CharSequence value) {
+        checkName(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Header value is null: " + name);
+        }
+    }
+
+    /** @throws IllegalArgumentException if the header would break out of its HTTP/1 line */
+    private static void checkNoLineBreak(CharSequence name, CharSequence value) {
+        if (hasLineBreak(name) || (value != null && hasLineBreak(value))) {
+            throw new IllegalArgumentException("Header contains CR or LF: " + name);
+        }
+    }
+
+    private static boolean hasLineBreak(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Http1BufferWriter extends HeaderBlockWriter {
+        private final ByteBuffer buffer;
+        private final byte[] digits = new byte[IdCodec.MAX_DECIMAL_LENGTH];
+
+        Http1BufferWriter(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void putHeader(CharSequence name, CharSequence value) {
+            checkNotNull(name, value);
+            checkNoLineBreak(name, value);
+            putAscii(name);
+            buffer.put((byte) ':').put((byte) ' ');
+            putAscii(value);
+            buffer.put((byte) '\r').put((byte) '\n');
+        }
+
+        @Override
+        public void putHeader(CharSequence name, long value) {
+            checkName(name);
+            checkNoLineBreak(name, null);
+            putAscii(name);
+            buffer.put((byte) ':').put((byte) ' ');
+            int start = IdCodec.writeDecimalBefore(value, digits, digits.length);
+            buffer.put(digits, start, digits.length - start);
+            buffer.put((byte) '\r').put((byte) '\n');
+        }
+
+        private void putAscii(CharSequence value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                buffer.put(c < 0x80 ? (byte) c : (byte) '?');
+            }
+        }
+    }
+
+    private static final class Http1AppendableWriter extends HeaderBlockWriter {
+        private final Appendable appendable;
+        private final byte[] digits = new byte[IdCodec.MAX_DECIMAL_LENGTH];
+
+        Http1AppendableWriter(Appendable appendable) {
+            this.appendable = appendable;
+        }
+
+        @Override
+        public void putHeader(CharSequence name, CharSequence value) {
+            checkNotNull(name, value);
+            checkNoLineBreak(name, value);
+            try {
+                appendAscii(name);
+                appendable.append(": ");
+                appendAscii(value);
+                appendable.append("\r\n");
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not write header " + name, e);
+            }
+        }
+
+        @Override
+        public void putHeader(CharSequence name, long value) {
+            checkName(name);
+            checkNoLineBreak(name, null);
+            try {
+                appendAscii(name);
+                appendable.append(": ");
+                if (appendable instanceof StringBuilder) {
+                    ((StringBuilder) appendable).append(value);
+                } else {
+                    for (int i = IdCodec.writeDecimalBefore(value, digits, digits.length); i < digits.length; i++) {
+                        appendable.append((char) digits[i]);
+                    }
+                }
+                appendable.append("\r\n");
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not write header " + name, e);
+            }
+        }
+
+        private void appendAscii(CharSequence value) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                appendable.append(c < 0x80 ? c : '?');
+            }
+        }
+    }
+
+    private static final class LengthPrefixedWriter extends HeaderBlockWriter {
+        private final ByteBuffer buffer;
+        private final byte[] digits = new byte[IdCodec.MAX_DECIMAL_LENGTH];
+
+        LengthPrefixedWriter(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void putHeader(CharSequence name, CharSequence value) {
+            checkNotNull(name, value);
+            ByteBufferCodec.writeString(buffer, name);
+            ByteBufferCodec.writeString(buffer, value);
+        }
+
+        @Override
+        public void putHeader(CharSequence name, long value) {
+            checkName(name);
+            ByteBufferCodec.writeString(buffer, name);
+            int start = IdCodec.writeDecimalBefore(value, digits, digits.length);
+            ByteBufferCodec.writeVarint(buffer, digits.length - start);
+            buffer.put(digits, start, digits.length - start);
+        }
+    }
+}
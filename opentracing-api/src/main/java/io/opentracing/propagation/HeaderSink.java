@@ -0,0 +1,40 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.propagation;
+
+import io.opentracing.SpanContext;
+import io.opentracing.Tracer;
+
+/**
+ * A write-only carrier for the HEADER_BLOCK format, receiving each header as it is encoded rather than as a pair of
+ * Strings, so that implementations can write into byte-oriented buffers directly.
+ *
+ * Header names and values are the same as for HTTP_HEADERS.
+ *
+ * @see HeaderBlockWriter
+ * @see Format.Builtin#HEADER_BLOCK
+ * @see Tracer#inject(SpanContext, Format, Object)
+ */
+public interface HeaderSink {
+
+    /**
+     * Writes a header; the sequences are only read during the call.
+     */
+    void putHeader(CharSequence name, CharSequence value);
+
+    /**
+     * Writes a header with a decimal value.
+     */
+    void putHeader(CharSequence name, long value);
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.propagation;
+
+import io.opentracing.SpanContext;
+
+/**
+ * KeyedTextMap is an optional capability of a TextMap carrier: it allows Tracer.extract() to look up the few keys
+ * it needs directly, and to visit all entries without allocating a Map.Entry per entry.
+ *
+ * Tracer implementations check for this interface and fall back to {@link TextMap#iterator()} if the carrier does not
+ * implement it.
+ *
+ * @see io.opentracing.Tracer#extract(Format, Object)
+ * @see TextMapExtractAdapter
+ */
+public interface KeyedTextMap extends TextMap {
+    /**
+     * @param key the exact key to look up
+     * @return the value for the key, or null if the carrier has no such entry
+     *
+     * @see Format.Builtin#TEXT_MAP
+     */
+    String get(String key);
+
+    /**
+     * Like {@link #get(String)}, but matches keys regardless of ASCII case, as required for HTTP header names.
+     *
+     * @param key the key to look up, in any case
+     * @return the value for the key, or null if the carrier has no such entry
+     *
+     * @see Format.Builtin#HTTP_HEADERS
+     */
+    String getIgnoreCase(String key);
+
+    /**
+     * Visits the entries of the carrier in iteration order until the visitor returns false.
+     *
+     * @param visitor called once per key:value pair
+     *
+     * @see TextMap#iterator()
+     */
+    void forEachEntry(EntryVisitor visitor);
+
+    /**
+     * Callback for {@link KeyedTextMap#forEachEntry(EntryVisitor)}.
+     */
+    interface EntryVisitor {
+        /**
+         * @return true to continue with the next entry, false to stop visiting
+         */
+        boolean visit(String key, String value);
+    }
+}
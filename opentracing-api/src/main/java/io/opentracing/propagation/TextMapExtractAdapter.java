@@ -25,8 +25,9 @@ import java.util.Map;
  * illustrated here).
  *
  * @see Tracer#extract(Format, Object)
+ * @see KeyedTextMap
  */
-public final class TextMapExtractAdapter implements TextMap {
+public final class TextMapExtractAdapter implements KeyedTextMap {
     private final Map<String,String> map;
 
     public TextMapExtractAdapter(final Map<String,String> map) {
@@ -38,6 +39,34 @@ public final class TextMapExtractAdapter implements TextMap {
         return map.entrySet().iterator();
     }
 
+    @Override
+    public String get(String key) {
+        return map.get(key);
+    }
+
+    @Override
+    public String getIgnoreCase(String key) {
+        String value = map.get(key);
+        if (value != null) {
+            return value;
+        }
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            if (key.equalsIgnoreCase(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void forEachEntry(EntryVisitor visitor) {
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            if (!visitor.visit(entry.getKey(), entry.getValue())) {
+                return;
+            }
+        }
+    }
+
     @Override
     public void put(String key, String value) {
         throw new UnsupportedOperationException("TextMapInjectAdapter should only be used with Tracer.extract()");
@@ -13,6 +13,8 @@
  */
 package io.opentracing.tag;
 
+import io.opentracing.ValueSupplier;
+
 public abstract class AbstractTag<T> {
     protected final String key;
 
@@ -25,4 +27,13 @@ public abstract class AbstractTag<T> {
     }
 
     protected abstract void set(io.opentracing.Span span, T tagValue);
+
+    /**
+     * Sets a tag value that is only computed if and when the span is recorded.
+     *
+     * @see io.opentracing.Span#setTag(String, ValueSupplier)
+     */
+    public void setDeferred(io.opentracing.Span span, ValueSupplier<? extends T> tagValue) {
+        span.setTag(key, tagValue);
+    }
 }
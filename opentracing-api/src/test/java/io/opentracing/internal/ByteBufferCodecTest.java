@@ -0,0 +1,79 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.internal;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ByteBufferCodecTest {
+
+    @Test
+    public void testVarintRoundTrip() {
+        ByteBuffer buffer = ByteBuffer.allocate(32);
+        int[] values = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE};
+        for (int value : values) {
+            ByteBufferCodec.writeVarint(buffer, value);
+        }
+        assertEquals(1 + 1 + 1 + 2 + 2 + 3 + 5, buffer.position());
+        buffer.flip();
+        for (int value : values) {
+            assertEquals(value, ByteBufferCodec.readVarint(buffer));
+        }
+    }
+
+    @Test
+    public void testMalformedVarint() {
+        assertEquals(ByteBufferCodec.MALFORMED, ByteBufferCodec.readVarint(ByteBuffer.wrap(new byte[] {(byte) 0x80})));
+        byte[] tooLong = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01};
+        assertEquals(ByteBufferCodec.MALFORMED, ByteBufferCodec.readVarint(ByteBuffer.wrap(tooLong)));
+    }
+
+    @Test
+    public void testStringRoundTripHeap() {
+        assertStringRoundTrip(ByteBuffer.allocate(64));
+    }
+
+    @Test
+    public void testStringRoundTripDirect() {
+        assertStringRoundTrip(ByteBuffer.allocateDirect(64));
+    }
+
+    @Test
+    public void testTruncatedString() {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        ByteBufferCodec.writeString(buffer, "abcdef");
+        buffer.flip();
+        buffer.limit(4);
+        assertNull(ByteBufferCodec.readString(buffer));
+    }
+
+    private static void assertStringRoundTrip(ByteBuffer buffer) {
+        String[] values = {"", "ascii", "café", "€", "😀"};
+        int expectedLength = 0;
+        for (String value : values) {
+            ByteBufferCodec.writeString(buffer, value);
+            expectedLength += ByteBufferCodec.encodedLength(value);
+        }
+        assertEquals(expectedLength, buffer.position());
+        buffer.flip();
+        for (String value : values) {
+            assertEquals(value, ByteBufferCodec.readString(buffer));
+        }
+        assertEquals(0, buffer.remaining());
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.internal;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class IdCodecTest {
+
+    @Test
+    public void testHexRoundTrip() {
+        long[] values = {0L, 1L, 42L, Long.MAX_VALUE, Long.MIN_VALUE, -1L};
+        char[] buffer = new char[18];
+        for (long value : values) {
+            IdCodec.writeHex(value, buffer, 2);
+            String hex = new String(buffer, 2, 16);
+            assertEquals(String.format("%016x", value), hex);
+            assertEquals(true, IdCodec.isHex(hex, 0, 16));
+            assertEquals(value, IdCodec.parseHex(hex, 0, 16));
+        }
+    }
+
+    @Test
+    public void testHexByte() {
+        char[] buffer = new char[2];
+        IdCodec.writeHexByte(0xa5, buffer, 0);
+        assertEquals("a5", new String(buffer));
+        IdCodec.writeHexByte((byte) 0x81, buffer, 0);
+        assertEquals("81", new String(buffer));
+    }
+
+    @Test
+    public void testDecimal() {
+        String[] valid = {"0", "-0", "42", "-42", "9223372036854775807", "-9223372036854775808", "0009"};
+        for (String value : valid) {
+            assertEquals(value, true, IdCodec.isDecimal(value));
+            assertEquals(Long.parseLong(value), IdCodec.parseDecimal(value));
+        }
+        String[] invalid = {"", "-", "4a", " 1", "+1", "9223372036854775808", "-9223372036854775809",
+            "99999999999999999999"};
+        for (String value : invalid) {
+            assertEquals(value, false, IdCodec.isDecimal(value));
+        }
+    }
+
+    @Test
+    public void testWriteDecimal() {
+        long[] values = {0L, 7L, -7L, 10L, 42L, -100L, Long.MAX_VALUE, Long.MIN_VALUE};
+        char[] chars = new char[IdCodec.MAX_DECIMAL_LENGTH + 1];
+        byte[] bytes = new byte[IdCodec.MAX_DECIMAL_LENGTH + 1];
+        for (long value : values) {
+            String expected = Long.toString(value);
+            assertEquals(expected.length(), IdCodec.decimalLength(value));
+            assertEquals(expected.length() + 1, IdCodec.writeDecimal(value, chars, 1));
+            assertEquals(expected, new String(chars, 1, expected.length()));
+            int start = IdCodec.writeDecimalBefore(value, chars, chars.length);
+            assertEquals(expected, new String(chars, start, chars.length - start));
+            start = IdCodec.writeDecimalBefore(value, bytes, bytes.length);
+            assertEquals(bytes.length - expected.length(), start);
+            assertEquals(value, IdCodec.parseDecimal(bytes, start, expected.length()));
+            assertEquals(expected.length() + 1, IdCodec.writeDecimal(value, bytes, 1));
+            assertEquals(true, IdCodec.isDecimal(bytes, 1, expected.length()));
+            assertEquals(value, IdCodec.parseDecimal(bytes, 1, expected.length()));
+            assertEquals(true, IdCodec.isDecimal("x" + expected + "x", 1, expected.length()));
+            assertEquals(value, IdCodec.parseDecimal("x" + expected + "x", 1, expected.length()));
+        }
+        assertEquals(false, IdCodec.isDecimal(new byte[] {'1', 'a'}, 0, 2));
+        assertEquals(false, IdCodec.isDecimal(new byte[] {'1'}, 0, 2));
+    }
+
+    @Test
+    public void testHex128() {
+        char[] buffer = new char[32];
+        IdCodec.writeHex128(0x0102030405060708L, -1L, buffer, 0);
+        String hex = new String(buffer);
+        assertEquals("0102030405060708ffffffffffffffff", hex);
+        assertEquals(0x0102030405060708L, IdCodec.parseHexHigh(hex, 0, 32));
+        assertEquals(-1L, IdCodec.parseHexLow(hex, 0, 32));
+        assertEquals(0L, IdCodec.parseHexHigh("2a", 0, 2));
+        assertEquals(42L, IdCodec.parseHexLow("2a", 0, 2));
+        assertEquals(0x1L, IdCodec.parseHexHigh("1ffffffffffffffff", 0, 17));
+    }
+
+    @Test
+    public void testHexBytes() {
+        byte[] buffer = new byte[16];
+        IdCodec.writeHex(0xabcdefL, buffer, 0);
+        assertEquals(true, IdCodec.isHex(buffer, 0, 16));
+        assertEquals(0xabcdefL, IdCodec.parseHex(buffer, 0, 16));
+        buffer[3] = 'g';
+        assertEquals(false, IdCodec.isHex(buffer, 0, 16));
+        assertEquals(false, IdCodec.isHex(buffer, 8, 16));
+    }
+
+    @Test
+    public void testIsHex() {
+        assertEquals(true, IdCodec.isHex("0aF9", 0, 4));
+        assertEquals(false, IdCodec.isHex("0ag9", 0, 4));
+        assertEquals(false, IdCodec.isHex("0a", 0, 4));
+        assertEquals(false, IdCodec.isHex("0a", 0, 0));
+        assertEquals(true, IdCodec.isLowerHex("x0af9", 1, 4));
+        assertEquals(false, IdCodec.isLowerHex("0aF9", 0, 4));
+        assertEquals(false, IdCodec.isLowerHex("0a", 0, 4));
+        assertEquals(-1, IdCodec.hexDigit('-'));
+    }
+
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.internal;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IdGeneratorTest {
+
+    @Test
+    public void testSequential() {
+        IdGenerator ids = IdGenerator.sequential();
+        assertEquals(1, ids.nextId());
+        assertEquals(2, ids.nextId());
+        assertEquals(0, ids.nextTraceIdHigh());
+        assertEquals(1, IdGenerator.sequential().nextId());
+    }
+
+    @Test
+    public void testRandomIsUniqueAcrossThreads() throws InterruptedException {
+        final Set<Long> ids = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        long id = IdGenerator.random().nextId();
+                        assertTrue(id != 0);
+                        ids.add(id);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000, ids.size());
+    }
+
+    @Test
+    public void testRandomTraceIdHigh() {
+        Set<Long> highs = new HashSet<Long>();
+        for (int i = 0; i < 100; i++) {
+            highs.add(IdGenerator.random().nextTraceIdHigh());
+        }
+        assertEquals(100, highs.size());
+    }
+
+}
@@ -34,4 +34,9 @@ public class BuiltinFormatTest {
         assertEquals("Builtin.BINARY", Format.Builtin.BINARY.toString());
     }
 
+    @Test
+    public void test_HEADER_BLOCK_toString() {
+        assertEquals("Builtin.HEADER_BLOCK", Format.Builtin.HEADER_BLOCK.toString());
+    }
+
 }
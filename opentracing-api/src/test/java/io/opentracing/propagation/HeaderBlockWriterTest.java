@@ -0,0 +1,113 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.propagation;
+
+import io.opentracing.internal.ByteBufferCodec;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class HeaderBlockWriterTest {
+
+    @Test
+    public void testHttp1Buffer() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(128);
+        HeaderSink sink = HeaderBlockWriter.http1(buffer);
+        sink.putHeader("x-id", Long.MIN_VALUE);
+        sink.putHeader("x-id", 0);
+        sink.putHeader("x-name", "café");
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        assertEquals("x-id: -9223372036854775808\r\nx-id: 0\r\nx-name: caf?\r\n", new String(bytes, "US-ASCII"));
+    }
+
+    @Test
+    public void testHttp1Appendable() {
+        StringBuilder sb = new StringBuilder();
+        HeaderSink sink = HeaderBlockWriter.http1(sb);
+        sink.putHeader("x-id", 42);
+        sink.putHeader("x-name", "alice");
+
+        assertEquals("x-id: 42\r\nx-name: alice\r\n", sb.toString());
+    }
+
+    @Test
+    public void testHttp1RejectsLineBreaks() {
+        StringBuilder sb = new StringBuilder();
+        HeaderSink sink = HeaderBlockWriter.http1(sb);
+        String[][] headers = {{"x-name", "alice\r\nx-admin: true"}, {"x-name\n", "alice"}};
+        for (String[] header : headers) {
+            try {
+                sink.putHeader(header[0], header[1]);
+                fail("Expected IllegalArgumentException");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        try {
+            HeaderBlockWriter.http1(ByteBuffer.allocate(64)).putHeader("x-id\r", 42);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        assertEquals("", sb.toString());
+    }
+
+    @Test
+    public void testRejectsNullBeforeWriting() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        StringBuilder sb = new StringBuilder();
+        HeaderSink[] sinks = {HeaderBlockWriter.http1(buffer), HeaderBlockWriter.http1(sb),
+                HeaderBlockWriter.lengthPrefixed(buffer)};
+        for (HeaderSink sink : sinks) {
+            String[][] headers = {{"x-name", null}, {null, "alice"}};
+            for (String[] header : headers) {
+                try {
+                    sink.putHeader(header[0], header[1]);
+                    fail("Expected IllegalArgumentException");
+                } catch (IllegalArgumentException expected) {
+                }
+            }
+            try {
+                sink.putHeader(null, 42);
+                fail("Expected IllegalArgumentException");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+
+        assertEquals(0, buffer.position());
+        assertEquals("", sb.toString());
+    }
+
+    @Test
+    public void testLengthPrefixed() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        HeaderSink sink = HeaderBlockWriter.lengthPrefixed(buffer);
+        sink.putHeader("x-id", -42);
+        sink.putHeader("x-name", "café");
+        buffer.flip();
+
+        assertEquals("x-id", ByteBufferCodec.readString(buffer));
+        assertEquals("-42", ByteBufferCodec.readString(buffer));
+        assertEquals("x-name", ByteBufferCodec.readString(buffer));
+        assertEquals("café", ByteBufferCodec.readString(buffer));
+        assertEquals(0, buffer.remaining());
+    }
+
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.propagation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TextMapExtractAdapterTest {
+
+    @Test
+    public void testGet() {
+        Map<String, String> map = new LinkedHashMap<String, String>();
+        map.put("X-Trace-Id", "1");
+        KeyedTextMap carrier = new TextMapExtractAdapter(map);
+
+        assertEquals("1", carrier.get("X-Trace-Id"));
+        assertNull(carrier.get("x-trace-id"));
+        assertEquals("1", carrier.getIgnoreCase("x-trace-id"));
+        assertNull(carrier.getIgnoreCase("x-span-id"));
+    }
+
+    @Test
+    public void testForEachEntryStopsWhenVisitorReturnsFalse() {
+        Map<String, String> map = new LinkedHashMap<String, String>();
+        map.put("a", "1");
+        map.put("b", "2");
+        map.put("c", "3");
+        final List<String> visited = new ArrayList<String>();
+        new TextMapExtractAdapter(map).forEachEntry(new KeyedTextMap.EntryVisitor() {
+            @Override
+            public boolean visit(String key, String value) {
+                visited.add(key + "=" + value);
+                return !"b".equals(key);
+            }
+        });
+
+        assertEquals(2, visited.size());
+        assertEquals("a=1", visited.get(0));
+        assertEquals("b=2", visited.get(1));
+    }
+}
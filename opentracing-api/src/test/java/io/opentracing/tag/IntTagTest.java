@@ -31,4 +31,15 @@ public class IntTagTest {
 
         verify(span).setTag(key, value);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSetNull() {
+        String key = "expected.key";
+        Span span = mock(Span.class);
+
+        IntTag tag = new IntTag(key);
+        tag.set(span, null);
+
+        verify(span).setTag(key, (Number) null);
+    }
+}
@@ -14,6 +14,7 @@
 package io.opentracing.tag;
 
 import io.opentracing.Span;
+import io.opentracing.ValueSupplier;
 import org.junit.Test;
 
 import static org.mockito.Mockito.mock;
@@ -32,4 +33,16 @@ public class StringTagTest {
 
         verify(span).setTag(key, value);
     }
+
+    @Test
+    public void testSetDeferredString() {
+        String key = "expected.key";
+        ValueSupplier<String> value = () -> "expected.value";
+
+        Span span = mock(Span.class);
+        StringTag tag = new StringTag(key);
+        tag.setDeferred(span, value);
+
+        verify(span).setTag(key, value);
+    }
 }
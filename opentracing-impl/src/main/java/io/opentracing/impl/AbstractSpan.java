@@ -15,24 +15,39 @@ package io.opentracing.impl;
 
 import io.opentracing.Span;
 import io.opentracing.SpanContext;
+import io.opentracing.ValueSupplier;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
 
 abstract class AbstractSpan implements Span, SpanContext {
 
     private String operationName;
 
     private final Map<String,String> baggage = new HashMap<>();
+    private int baggageBytes;
+    private BaggageLimits baggageLimits = BaggageLimits.UNLIMITED;
+    /** Baggage of an extracted parent, copied to {@link #baggage} only once it is read or written */
+    private ExtractedContext inheritedBaggage;
+    /** Incremented on every baggage change, after the change; stamps {@link #encodedHeaders} */
+    private volatile int baggageVersion;
+    /** Single slot, a span is usually injected in one format only */
+    private volatile EncodedHeaders encodedHeaders;
+    private static final AtomicReferenceFieldUpdater<AbstractSpan, EncodedHeaders> ENCODED_HEADERS =
+            AtomicReferenceFieldUpdater.newUpdater(AbstractSpan.class, EncodedHeaders.class, "encodedHeaders");
 
     private final Instant start;
     private Duration duration;
     private final Map<String,Object> tags = new HashMap<>();
+    private boolean hasDeferredTags;
     private final List<LogData> logs = new ArrayList<>();
 
     AbstractSpan(String operationName ) {
@@ -49,6 +64,7 @@ abstract class AbstractSpan implements Span, SpanContext {
         return this;
     }
 
+    /** Leaves deferred tag values and log fields unevaluated; they are evaluated when first read, e.g. on export. */
     @Override
     public void finish() {
         assert null == duration;
@@ -63,6 +79,25 @@ abstract class AbstractSpan implements Span, SpanContext {
         duration = Duration.between(start, Instant.ofEpochSecond(finishEpochSeconds, nanos));
     }
 
+    /** Evaluates the deferred tag values once; a tag whose supplier throws is dropped. */
+    private void resolveDeferredTags() {
+        if (!hasDeferredTags) {
+            return;
+        }
+        hasDeferredTags = false;
+        Iterator<Map.Entry<String,Object>> iterator = tags.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String,Object> entry = iterator.next();
+            if (entry.getValue() instanceof ValueSupplier) {
+                try {
+                    entry.setValue(((ValueSupplier<?>) entry.getValue()).get());
+                } catch (RuntimeException ex) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
     public final String getOperationName() {
     	return operationName;
     }
@@ -86,6 +121,11 @@ abstract class AbstractSpan implements Span, SpanContext {
         finish();
     }
 
+    @Override
+    public boolean isRecording() {
+        return true;
+    }
+
     @Override
     public final Span setTag(String key, String value) {
         tags.put(key, value);
@@ -104,27 +144,122 @@ abstract class AbstractSpan implements Span, SpanContext {
         return this;
     }
 
+    /**
+     * Stores the supplier as is if this span is recording; it is evaluated once, when the tags are first read.
+     *
+     * @see #getTags()
+     */
+    @Override
+    public final Span setTag(String key, ValueSupplier<?> value) {
+        if (isRecording()) {
+            tags.put(key, value);
+            hasDeferredTags = true;
+        }
+        return this;
+    }
+
+    /**
+     * @return the tags of this span, with deferred values evaluated now if they were not yet, typically by the
+     * reporter on export; a tag whose supplier throws is dropped
+     */
     public final Map<String,Object> getTags() {
+        resolveDeferredTags();
         return Collections.unmodifiableMap(tags);
     }
 
+    /**
+     * Drops the item if it is over the {@link #baggageLimits()}, counting an existing item of the key as replaced.
+     */
     @Override
     public AbstractSpan setBaggageItem(String key, String value) {
-        baggage.put(key, value);
+        copyInheritedBaggage();
+        String previous = baggage.get(key);
+        int items = baggage.size();
+        int bytes = baggageBytes;
+        if (previous != null || baggage.containsKey(key)) {
+            items--;
+            bytes -= BaggageLimits.size(key, previous);
+        }
+        int itemBytes = BaggageLimits.size(key, value);
+        if (baggageLimits().admit(key, items, bytes, itemBytes)) {
+            baggage.put(key, value);
+            baggageBytes = bytes + itemBytes;
+            baggageVersion++; // a single writer, like the baggage map itself
+            encodedHeaders = null;
+        }
         return this;
     }
 
+    /**
+     * @return the limits enforced by {@link #setBaggageItem(String, String)}: those of the tracer that started this
+     * span, or none for spans created otherwise
+     */
+    BaggageLimits baggageLimits() {
+        return baggageLimits;
+    }
+
+    /** Sets the limits of the tracer starting this span, before any baggage is set. */
+    final void setBaggageLimits(BaggageLimits baggageLimits) {
+        this.baggageLimits = baggageLimits;
+    }
+
+    /**
+     * Takes the baggage of an extracted parent without decoding it; it is copied, subject to the
+     * {@link #baggageLimits()}, when the baggage of this span is first read or written.
+     */
+    final void inheritBaggage(ExtractedContext parent) {
+        assert baggage.isEmpty() && inheritedBaggage == null;
+        inheritedBaggage = parent;
+    }
+
+    private void copyInheritedBaggage() {
+        ExtractedContext from = inheritedBaggage;
+        if (from != null) {
+            inheritedBaggage = null;
+            for (Map.Entry<String,String> entry : from.baggageItems()) {
+                setBaggageItem(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
     @Override
     public String getBaggageItem(String key) {
+        copyInheritedBaggage();
         return baggage.get(key);
     }
 
     @Override
     public final Iterable<Map.Entry<String,String>> baggageItems() {
+        copyInheritedBaggage();
         return baggage.entrySet();
     }
 
+    /**
+     * Encodes this span for propagation at most once per encoder and baggage flag, until the baggage changes. The
+     * trace state of a span is assumed not to change. An encoding that raced with a baggage change is returned but
+     * not cached.
+     *
+     * @param withBaggage whether the encoding includes the baggage, as the encoder's flag may be toggled
+     * @return the flat name/value pairs produced by the encoding, not to be modified
+     */
+    final String[] encodedHeaders(Object encoder, boolean withBaggage, Function<SpanContext, String[]> encoding) {
+        copyInheritedBaggage();
+        int version = baggageVersion;
+        EncodedHeaders cached = encodedHeaders;
+        if (cached != null && cached.encoder == encoder && cached.withBaggage == withBaggage
+                && cached.baggageVersion == version) {
+            return cached.headers;
+        }
+        String[] headers = encoding.apply(this);
+        if (baggageVersion == version) {
+            // a change after the check clears the slot, failing the CAS; otherwise the stale stamp is never served
+            ENCODED_HEADERS.compareAndSet(this, cached, new EncodedHeaders(encoder, withBaggage, version, headers));
+        }
+        return headers;
+    }
+
     public final Map<String,String> getBaggage() {
+        copyInheritedBaggage();
     	return Collections.unmodifiableMap(baggage);
     }
 
@@ -150,6 +285,20 @@ abstract class AbstractSpan implements Span, SpanContext {
         return this;
     }
 
+    @Override
+    public final Span log(ValueSupplier<? extends Map<String, ?>> fields) {
+        return log(nowMicros(), fields);
+    }
+
+    @Override
+    public final Span log(long timestampMicros, ValueSupplier<? extends Map<String, ?>> fields) {
+        if (isRecording()) {
+            Instant timestamp = Instant.ofEpochSecond(timestampMicros / 1000000, (timestampMicros % 1000000) * 1000);
+            logs.add(new LogData(timestamp, fields));
+        }
+        return this;
+    }
+
     @Override
     public final Span log(String event, /* @Nullable */ Object payload) {
         Instant now = Instant.now();
@@ -176,14 +325,55 @@ abstract class AbstractSpan implements Span, SpanContext {
         return Collections.unmodifiableList(logs);
     }
 
+    private static final class EncodedHeaders {
+        private final Object encoder;
+        private final boolean withBaggage;
+        private final int baggageVersion;
+        private final String[] headers;
+
+        EncodedHeaders(Object encoder, boolean withBaggage, int baggageVersion, String[] headers) {
+            this.encoder = encoder;
+            this.withBaggage = withBaggage;
+            this.baggageVersion = baggageVersion;
+            this.headers = headers;
+        }
+    }
+
     final class LogData {
         private final Instant time;
-        private final Map<String, ?> fields;
+        private Map<String, ?> fields;
+        private ValueSupplier<? extends Map<String, ?>> deferredFields;
 
         LogData(Instant time, Map<String, ?> fields) {
             this.time = time;
             this.fields = fields;
         }
+
+        LogData(Instant time, ValueSupplier<? extends Map<String, ?>> deferredFields) {
+            this.time = time;
+            this.deferredFields = deferredFields;
+        }
+
+        Instant getTime() {
+            return time;
+        }
+
+        /**
+         * @return the log fields, with deferred fields evaluated now if they were not yet, typically by the reporter on
+         * export; null if their supplier throws
+         */
+        Map<String, ?> getFields() {
+            if (deferredFields != null) {
+                ValueSupplier<? extends Map<String, ?>> supplier = deferredFields;
+                deferredFields = null;
+                try {
+                    fields = supplier.get();
+                } catch (RuntimeException ex) {
+                    fields = null;
+                }
+            }
+            return fields;
+        }
     }
 
     static long nowMicros() {
@@ -17,6 +17,7 @@ import io.opentracing.References;
 import io.opentracing.Span;
 import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
+import io.opentracing.ValueSupplier;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -34,30 +35,52 @@ abstract class AbstractSpanBuilder implements Tracer.SpanBuilder {
     private final Map<String, String> stringTags = new HashMap<>();
     private final Map<String, Boolean> booleanTags = new HashMap<>();
     private final Map<String, Number> numberTags = new HashMap<>();
+    private final Map<String, ValueSupplier<?>> deferredTags = new HashMap<>();
     private final Map<String, String> baggage = new HashMap<>();
+    /** Baggage of an extracted parent, copied to {@link #baggage} only once it is read or written */
+    private ExtractedContext inheritedBaggage;
+    /** The limits of the tracer, or null for builders not created through {@link AbstractTracer#buildSpan(String)} */
+    private BaggageLimits baggageLimits;
 
     AbstractSpanBuilder(String operationName) {
         this.operationName = operationName;
     }
 
+    /** Sets the baggage limits of the spans started; only called by the tracer creating this builder. */
+    final AbstractSpanBuilder withBaggageLimits(BaggageLimits baggageLimits) {
+        this.baggageLimits = baggageLimits;
+        return this;
+    }
+
     /** Create a Span, using the builder fields. */
     protected abstract AbstractSpan createSpan();
 
     /** Adds an entry of the minimal set of properties required to propagate this span */
     abstract AbstractSpanBuilder withStateItem(String key, Object value);
 
-    /** Returns true if this key+value belongs in a Span's required propagation set, otherwise it is baggage. */
+    /**
+     * Returns true if this key+value belongs in a Span's required propagation set. Only asked for carrier entries
+     * without a baggage prefix, see {@link AbstractTracer#traceStateKeys()}.
+     *
+     * Must only depend on its arguments, as extraction may ask any builder of the tracer.
+     */
     abstract boolean isTraceState(String key, Object value);
 
+    /** Skips {@link ExtractedContext#INVALID}, as returned for malformed carriers. */
     @Override
     public final AbstractSpanBuilder addReference(String referenceType, SpanContext referredTo) {
-        this.references.add(new Reference(referenceType, referredTo));
+        if (referredTo != ExtractedContext.INVALID) {
+            this.references.add(new Reference(referenceType, referredTo));
+        }
         return this;
     }
 
+    /** Skips {@link ExtractedContext#INVALID}, as returned for malformed carriers. */
     @Override
     public final AbstractSpanBuilder asChildOf(SpanContext parent) {
-        if (io.opentracing.NoopSpanContext.class.isAssignableFrom(parent.getClass())) {
+        if (parent == ExtractedContext.INVALID) {
+            return this;
+        } else if (io.opentracing.NoopSpanContext.class.isAssignableFrom(parent.getClass())) {
             return NoopSpanBuilder.INSTANCE;
         } else {
             withBaggageFrom(parent);
@@ -93,6 +116,12 @@ abstract class AbstractSpanBuilder implements Tracer.SpanBuilder {
         return this;
     }
 
+    @Override
+    public final AbstractSpanBuilder withTag(String key, ValueSupplier<?> value) {
+        deferredTags.put(key, value);
+        return this;
+    }
+
     @Override
     public final AbstractSpanBuilder withStartTimestamp(long microseconds) {
         long epochSeconds = TimeUnit.MICROSECONDS.toSeconds(microseconds);
@@ -103,31 +132,63 @@ abstract class AbstractSpanBuilder implements Tracer.SpanBuilder {
 
     public final AbstractSpanBuilder withBaggageItem(String key, String value) {
         assert !isTraceState(key, value);
+        copyInheritedBaggage();
         baggage.put(key, value);
         return this;
     }
 
     @Override
     public final Iterable<Map.Entry<String, String>> baggageItems() {
+        copyInheritedBaggage();
         return baggage.entrySet();
     }
 
     @Override
     public final Span start() {
         AbstractSpan span = createSpan();
+        if (baggageLimits != null) {
+            span.setBaggageLimits(baggageLimits);
+        }
         stringTags.entrySet().forEach((entry) -> span.setTag(entry.getKey(), entry.getValue()));
         booleanTags.entrySet().forEach((entry) -> span.setTag(entry.getKey(), entry.getValue()));
         numberTags.entrySet().forEach((entry) -> span.setTag(entry.getKey(), entry.getValue()));
-        baggage.entrySet().forEach((entry) -> span.setBaggageItem(entry.getKey(), entry.getValue()));
+        deferredTags.entrySet().forEach((entry) -> span.setTag(entry.getKey(), entry.getValue()));
+        if (inheritedBaggage != null) {
+            span.inheritBaggage(inheritedBaggage);
+        } else {
+            baggage.entrySet().forEach((entry) -> span.setBaggageItem(entry.getKey(), entry.getValue()));
+        }
         return span;
     }
 
+    /**
+     * Copies the baggage of the parent. An extracted parent is immutable, so a sole one is only referenced and its
+     * baggage is not decoded unless the builder or the span started reads or writes baggage.
+     */
     private void withBaggageFrom(SpanContext from) {
+        if (from instanceof ExtractedContext && inheritedBaggage == null && baggage.isEmpty()) {
+            inheritedBaggage = (ExtractedContext) from;
+            return;
+        }
         for (Entry<String, String> baggageItem : from.baggageItems()) {
             this.withBaggageItem(baggageItem.getKey(), baggageItem.getValue());
         }
     }
 
+    private void copyInheritedBaggage() {
+        ExtractedContext from = inheritedBaggage;
+        if (from != null) {
+            inheritedBaggage = null;
+            for (Entry<String, String> baggageItem : from.baggageItems()) {
+                baggage.put(baggageItem.getKey(), baggageItem.getValue());
+            }
+        }
+    }
+
+    /**
+     * A reference to another SpanContext. Parents obtained through {@link AbstractTracer#extract} are typically an
+     * {@link ExtractedContext}, whose trace state is read through {@link ExtractedContext#getStateItem(String)}.
+     */
     public static final class Reference {
         private final String referenceType;
         private final SpanContext referredTo;
@@ -15,40 +15,140 @@ package io.opentracing.impl;
 
 import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
+import io.opentracing.propagation.BatchExtractor;
 import io.opentracing.propagation.Extractor;
 import io.opentracing.propagation.Format;
 import io.opentracing.propagation.Injector;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 abstract class AbstractTracer implements Tracer {
 
     static final boolean BAGGAGE_ENABLED = !Boolean.getBoolean("opentracing.propagation.dropBaggage");
+    static final boolean LENIENT_EXTRACTION = Boolean.getBoolean("opentracing.propagation.lenient");
+    /** The number of entries of a text carrier scanned at most, before it is rejected as invalid */
+    static final int MAX_EXTRACTED_ENTRIES = Integer.getInteger("opentracing.propagation.maxEntries", Integer.MAX_VALUE);
+    /** The number of key and value characters of a text carrier scanned at most, before it is rejected as invalid */
+    static final int MAX_EXTRACTED_CHARS = Integer.getInteger("opentracing.propagation.maxChars", Integer.MAX_VALUE);
+
+    /** The prefix of baggage keys in text carriers, unless a tracer declares its own {@link #baggageKeyPrefixes()} */
+    static final String DEFAULT_BAGGAGE_KEY_PREFIX = "ot-baggage-";
 
     private final PropagationRegistry registry = new PropagationRegistry();
+    private volatile KeyMatcher keyMatcher;
+    private volatile boolean lenientExtraction = LENIENT_EXTRACTION;
+    private volatile BaggageLimits baggageLimits = BaggageLimits.fromSystemProperties();
 
     protected AbstractTracer() {
-        registry.register(Format.Builtin.TEXT_MAP, new TextMapInjectorImpl(this));
-        registry.register(Format.Builtin.TEXT_MAP, new TextMapExtractorImpl(this));
+        TextMapInjectorImpl textMapInjector = new TextMapInjectorImpl(this);
+        TextMapExtractorImpl textMapExtractor = new TextMapExtractorImpl(this);
+        registry.register(Format.Builtin.TEXT_MAP, textMapInjector);
+        registry.register(Format.Builtin.TEXT_MAP, textMapExtractor);
+        TraceParentInjectorImpl httpHeadersInjector = new TraceParentInjectorImpl(textMapInjector);
+        registry.register(Format.Builtin.HTTP_HEADERS, httpHeadersInjector);
+        registry.register(Format.Builtin.HEADER_BLOCK, new HeaderSinkInjectorImpl(this, httpHeadersInjector));
+        registry.register(Format.Builtin.HTTP_HEADERS, new TraceParentExtractorImpl(textMapExtractor));
+        registry.register(Format.Builtin.BINARY, new BinaryInjectorImpl(this));
+        registry.register(Format.Builtin.BINARY, new BinaryExtractorImpl(this));
     }
 
     abstract AbstractSpanBuilder createSpanBuilder(String operationName);
 
     @Override
     public SpanBuilder buildSpan(String operationName){
-        return createSpanBuilder(operationName);
+        return createSpanBuilder(operationName).withBaggageLimits(baggageLimits);
+    }
+
+    /**
+     * @return the baggage limits of the spans this tracer starts, whose counters report the items dropped
+     */
+    public BaggageLimits getBaggageLimits() {
+        return baggageLimits;
+    }
+
+    /**
+     * Sets the baggage limits of the spans started from now on; by default they are read from system properties, see
+     * {@link BaggageLimits}.
+     */
+    public void setBaggageLimits(BaggageLimits baggageLimits) {
+        if (baggageLimits == null) {
+            throw new NullPointerException("baggageLimits");
+        }
+        this.baggageLimits = baggageLimits;
     }
 
     @Override
     public <C> void inject(SpanContext spanContext, Format<C> format, C carrier) {
-        registry.getInjector(format).inject(spanContext, carrier);
+        injector(format).inject(spanContext, carrier);
+    }
+
+    /**
+     * Injects one context into many carriers, e.g. the requests of a fan-out. The builtin text formats encode a span
+     * only once for all carriers.
+     */
+    public <C> void injectAll(SpanContext spanContext, Format<C> format, Iterable<? extends C> carriers) {
+        Injector<C> injector = injector(format);
+        for (C carrier : carriers) {
+            injector.inject(spanContext, carrier);
+        }
+    }
+
+    /**
+     * @return the extracted context; the builtin text map extractor returns a compact context that is only meant to
+     * be used as a parent reference. In lenient mode, an invalid context that span builders skip is returned for
+     * unknown formats and malformed carriers.
+     * @see #setLenientExtraction(boolean)
+     */
+    @Override
+    public <C> SpanContext extract(Format<C> format, C carrier) {
+        Extractor<C> extractor = registry.findExtractor(format);
+        if (extractor == null) {
+            if (lenientExtraction) {
+                return ExtractedContext.INVALID;
+            }
+            throw new AssertionError("no registered extractor for " + format);
+        }
+        return extractor.extract(carrier);
     }
 
-     @Override
-    public <C> SpanBuilder extract(Format<C> format, C carrier) {
-        return registry.getExtractor(format).extract(carrier);
+    /**
+     * Extracts the carriers of a batch, e.g. of consumed messages, in one call. Extractors implementing
+     * {@link BatchExtractor}, such as the builtin HTTP_HEADERS one, share their scratch state across the carriers and
+     * return the same context for carriers holding the same one; others are called per carrier.
+     *
+     * @return the contexts, in the order of the carriers
+     */
+    public <C> List<SpanContext> extractAll(Format<C> format, List<? extends C> carriers) {
+        Extractor<C> extractor = registry.findExtractor(format);
+        if (extractor instanceof BatchExtractor) {
+            return ((BatchExtractor<C>) extractor).extractAll(carriers);
+        }
+        List<SpanContext> contexts = new ArrayList<>(carriers.size());
+        for (C carrier : carriers) {
+            contexts.add(extract(format, carrier));
+        }
+        return contexts;
+    }
+
+    /**
+     * In lenient mode, extraction never throws, so that floods of malformed carriers do not cost an exception each.
+     * Off by default, or as set by the {@code opentracing.propagation.lenient} system property.
+     */
+    void setLenientExtraction(boolean lenientExtraction) {
+        this.lenientExtraction = lenientExtraction;
+    }
+
+    boolean isLenientExtraction() {
+        return lenientExtraction;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
     }
 
     public <C> Injector<C> register(Format<C> format, Injector<C> injector) {
@@ -59,35 +159,68 @@ abstract class AbstractTracer implements Tracer {
         return registry.register(format, extractor);
     }
 
-    /** @return the minimal set of properties required to propagate this span */
-    abstract Map<String,Object> getTraceState(SpanContext spanContext);
-
-    private static class PropagationRegistry {
-
-        private final ConcurrentMap<Format, Injector> injectors = new ConcurrentHashMap<>();
-        private final ConcurrentMap<Format, Extractor> extractors = new ConcurrentHashMap<>();
-
-        public <C> Injector<C> getInjector(Format<C> format) {
-            if (injectors.containsKey(format)) {
-                return injectors.get(format);
+    /**
+     * Registers the same codecs for several formats, e.g. for TEXT_MAP and HTTP_HEADERS.
+     *
+     * @param injector the injector, or null to keep the registered ones
+     * @param extractor the extractor, or null to keep the registered ones
+     */
+    @SafeVarargs
+    public final <C> void register(Injector<C> injector, Extractor<C> extractor, Format<C>... formats) {
+        for (Format<C> format : formats) {
+            if (injector != null) {
+                registry.register(format, injector);
             }
-            throw new AssertionError("no registered injector for " + format);
-        }
-
-        public <C> Extractor<C> getExtractor(Format<C> format) {
-            if (extractors.containsKey(format)) {
-                return extractors.get(format);
+            if (extractor != null) {
+                registry.register(format, extractor);
             }
-            throw new AssertionError("no registered extractor for " + format);
         }
+    }
 
-        public <C> Injector<C> register(Format<C> format, Injector<C> injector) {
-            return injectors.put(format, injector);
+    private <C> Injector<C> injector(Format<C> format) {
+        Injector<C> injector = registry.findInjector(format);
+        if (injector == null) {
+            throw new AssertionError("no registered injector for " + format);
         }
+        return injector;
+    }
+
+    /** @return the minimal set of properties required to propagate this span */
+    abstract Map<String,Object> getTraceState(SpanContext spanContext);
+
+    /**
+     * Declares the keys {@link #getTraceState(SpanContext)} produces. If empty (the default), carrier entries without
+     * a baggage prefix are offered to {@link AbstractSpanBuilder#isTraceState(String, Object)}. Otherwise carrier keys
+     * are classified by a precompiled {@link KeyMatcher} alone. Either way, entries that are neither trace state nor
+     * prefixed by one of the {@link #baggageKeyPrefixes()} are skipped.
+     *
+     * @return the trace-state keys, matched ignoring ASCII case
+     */
+    Collection<String> traceStateKeys() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Declares the prefixes that mark baggage entries in text carriers; baggage is injected with the first one.
+     * Defaults to {@link #DEFAULT_BAGGAGE_KEY_PREFIX}. A tracer that returns no prefixes opts in to injecting baggage
+     * unprefixed, and to extracting every entry that is not trace state as baggage, including unrelated entries
+     * such as the HTTP headers of the application.
+     *
+     * @return the baggage key prefixes, matched ignoring ASCII case
+     */
+    List<String> baggageKeyPrefixes() {
+        return Collections.singletonList(DEFAULT_BAGGAGE_KEY_PREFIX);
+    }
 
-        public <C> Extractor<C> register(Format<C> format, Extractor<C> extractor) {
-            return extractors.put(format, extractor);
+    /** @return the matcher compiled from {@link #traceStateKeys()} and {@link #baggageKeyPrefixes()} */
+    final KeyMatcher keyMatcher() {
+        KeyMatcher matcher = keyMatcher;
+        if (matcher == null) {
+            // compiled lazily, as the declarations may depend on subclass fields
+            matcher = KeyMatcher.compile(traceStateKeys(), baggageKeyPrefixes());
+            keyMatcher = matcher;
         }
+        return matcher;
     }
 
 }
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Encodes all baggage items into the single W3C {@code baggage} header, {@code key1=value1,key2=value2}, with
+ * characters outside the allowed set percent-encoded as UTF-8.
+ *
+ * Decoding is lenient: list members without a key or with a malformed escape are skipped, and properties after a
+ * {@code ;} are ignored.
+ */
+final class BaggageHeaderCodec {
+
+    static final String BAGGAGE = "baggage";
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private BaggageHeaderCodec() {
+    }
+
+    /** @return the header value, or null if there are no items; items with a null value are skipped */
+    static String encode(Iterable<Map.Entry<String, String>> items) {
+        StringBuilder sb = null;
+        for (Map.Entry<String, String> item : items) {
+            if (item.getValue() == null) {
+                continue;
+            }
+            if (sb == null) {
+                sb = new StringBuilder(64);
+            } else {
+                sb.append(',');
+            }
+            appendEncoded(sb, item.getKey());
+            sb.append('=');
+            appendEncoded(sb, item.getValue());
+        }
+        return sb == null ? null : sb.toString();
+    }
+
+    /** Puts the items of the header value into the map, in order, so later duplicates win. */
+    static void decode(String header, Map<String, String> items) {
+        int start = 0;
+        while (start <= header.length()) {
+            int end = header.indexOf(',', start);
+            if (end < 0) {
+                end = header.length();
+            }
+            int properties = header.indexOf(';', start);
+            int memberEnd = properties >= 0 && properties < end ? properties : end;
+            int equals = header.indexOf('=', start);
+            if (equals >= 0 && equals < memberEnd) {
+                String key = decodeComponent(header, start, equals);
+                String value = decodeComponent(header, equals + 1, memberEnd);
+                if (key != null && !key.isEmpty() && value != null) {
+                    items.put(key, value);
+                }
+            }
+            start = end + 1;
+        }
+    }
+
+    private static void appendEncoded(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (isSafe(c)) {
+                sb.append(c);
+            } else {
+                int codePoint = value.codePointAt(i);
+                if (Character.isSupplementaryCodePoint(codePoint)) {
+                    i++;
+                }
+                for (byte b : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8)) {
+                    sb.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+                }
+            }
+        }
+    }
+
+    /** @return true for the ASCII characters written as is, the unreserved characters of RFC 3986 and a few more */
+    private static boolean isSafe(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~' || c == '*' || c == '/' || c == ':' || c == '@';
+    }
+
+    /** @return the trimmed and percent-decoded range, or null if it holds a malformed escape */
+    private static String decodeComponent(String header, int start, int end) {
+        while (start < end && isWhitespace(header.charAt(start))) {
+            start++;
+        }
+        while (end > start && isWhitespace(header.charAt(end - 1))) {
+            end--;
+        }
+        if (header.indexOf('%', start) < 0 || header.indexOf('%', start) >= end) {
+            return header.substring(start, end);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(end - start);
+        for (int i = start; i < end; i++) {
+            char c = header.charAt(i);
+            if (c == '%') {
+                int high = i + 2 < end ? Character.digit(header.charAt(i + 1), 16) : -1;
+                int low = high >= 0 ? Character.digit(header.charAt(i + 2), 16) : -1;
+                if (low < 0) {
+                    return null;
+                }
+                bytes.write((high << 4) | low);
+                i += 2;
+            } else if (c < 0x80) {
+                bytes.write(c);
+            } else {
+                return null; // only ASCII is valid in the header
+            }
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t';
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits on the baggage of a span, enforced when an item is set so that oversized baggage is never propagated.
+ * Items over a limit are dropped, and counted per reason.
+ *
+ * Each tracer has its own limits, see {@link AbstractTracer#setBaggageLimits(BaggageLimits)}; by default they are
+ * read from the system properties {@code opentracing.baggage.maxItems}, {@code opentracing.baggage.maxBytes} and
+ * {@code opentracing.baggage.allowedKeys} (comma-separated), and are unlimited if these are not set.
+ *
+ * @see AbstractSpan#baggageLimits()
+ */
+public final class BaggageLimits {
+
+    /** For spans not started by a tracer; never drops an item, so its counters stay 0 */
+    static final BaggageLimits UNLIMITED = new BaggageLimits(Integer.MAX_VALUE, Integer.MAX_VALUE, null);
+
+    private final int maxItems;
+    private final int maxBytes;
+    /** null if all keys are allowed */
+    private final Set<String> allowedKeys;
+
+    private final AtomicLong rejectedKeys = new AtomicLong();
+    private final AtomicLong droppedForItems = new AtomicLong();
+    private final AtomicLong droppedForBytes = new AtomicLong();
+
+    /**
+     * @param maxBytes the maximum of the summed UTF-8 lengths of all keys and values of a span
+     * @param allowedKeys the only keys accepted, or null to accept all
+     */
+    public BaggageLimits(int maxItems, int maxBytes, Collection<String> allowedKeys) {
+        if (maxItems < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("Baggage limits must not be negative");
+        }
+        this.maxItems = maxItems;
+        this.maxBytes = maxBytes;
+        this.allowedKeys = allowedKeys == null ? null : Collections.unmodifiableSet(new HashSet<>(allowedKeys));
+    }
+
+    /**
+     * @param items the number of items the span has, not counting the item's key if present
+     * @param bytes the size of the span's items, not counting the item's key if present
+     * @param itemBytes the size of the item, see {@link #size(String, String)}
+     * @return true if the item may be added to the span; if not, it is counted as dropped
+     */
+    boolean admit(String key, int items, int bytes, int itemBytes) {
+        if (allowedKeys != null && !allowedKeys.contains(key)) {
+            rejectedKeys.incrementAndGet();
+            return false;
+        }
+        if (items >= maxItems) {
+            droppedForItems.incrementAndGet();
+            return false;
+        }
+        if ((long) bytes + itemBytes > maxBytes) {
+            droppedForBytes.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /** @return new limits, with counters of their own, as set by the {@code opentracing.baggage.*} properties */
+    public static BaggageLimits fromSystemProperties() {
+        return new BaggageLimits(
+                Integer.getInteger("opentracing.baggage.maxItems", Integer.MAX_VALUE),
+                Integer.getInteger("opentracing.baggage.maxBytes", Integer.MAX_VALUE),
+                parseKeys(System.getProperty("opentracing.baggage.allowedKeys")));
+    }
+
+    /** @return the number of items dropped as their key was not allowed */
+    public long rejectedKeys() {
+        return rejectedKeys.get();
+    }
+
+    /** @return the number of items dropped as the span had the maximum number of items */
+    public long droppedForItems() {
+        return droppedForItems.get();
+    }
+
+    /** @return the number of items dropped as they would have exceeded the byte budget of the span */
+    public long droppedForBytes() {
+        return droppedForBytes.get();
+    }
+
+    /** @return the summed UTF-8 lengths of key and value */
+    static int size(String key, String value) {
+        return utf8Length(key) + (value == null ? 0 : utf8Length(value));
+    }
+
+    private static int utf8Length(String value) {
+        int length = value.length();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isSurrogate(c)) {
+                length++; // a pair is 4 bytes
+            } else if (c >= 0x800) {
+                length += 2;
+            } else if (c >= 0x80) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    private static Collection<String> parseKeys(String keys) {
+        if (keys == null || keys.trim().isEmpty()) {
+            return null;
+        }
+        Set<String> result = new HashSet<>();
+        for (String key : Arrays.asList(keys.split(","))) {
+            if (!key.trim().isEmpty()) {
+                result.add(key.trim());
+            }
+        }
+        return result;
+    }
+}
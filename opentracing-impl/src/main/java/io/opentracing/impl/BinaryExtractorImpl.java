@@ -0,0 +1,97 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.SpanContext;
+import io.opentracing.internal.ByteBufferCodec;
+import io.opentracing.propagation.Extractor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads a SpanContext written by {@link BinaryInjectorImpl} from a ByteBuffer carrier, starting at its position.
+ * On success, the position is left after the encoded context; otherwise it is left unchanged.
+ */
+final class BinaryExtractorImpl implements Extractor<ByteBuffer> {
+
+    private final AbstractTracer tracer;
+
+    BinaryExtractorImpl(AbstractTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * @return the context, or {@link ExtractedContext#INVALID} in lenient mode if the carrier holds no valid context
+     * @throws IllegalArgumentException if the carrier holds no valid context of a known version, unless lenient
+     */
+    @Override
+    public SpanContext extract(ByteBuffer carrier) {
+        int position = carrier.position();
+        ExtractedContext context = decode(carrier);
+        if (context == null) {
+            carrier.position(position);
+            if (tracer.isLenientExtraction()) {
+                return ExtractedContext.INVALID;
+            }
+            throw new IllegalArgumentException("Corrupt binary span context or unsupported version");
+        }
+        return context;
+    }
+
+    /** @return the context, or null if the carrier holds no valid context */
+    private static ExtractedContext decode(ByteBuffer carrier) {
+        if (carrier.remaining() < 2 || carrier.get() != BinaryInjectorImpl.VERSION) {
+            return null;
+        }
+        carrier.get(); // flags, reserved
+
+        ExtractedContext context = new ExtractedContext();
+        int stateCount = ByteBufferCodec.readVarint(carrier);
+        if (stateCount == ByteBufferCodec.MALFORMED) {
+            return null;
+        }
+        for (int i = 0; i < stateCount; i++) {
+            String key = ByteBufferCodec.readString(carrier);
+            if (key == null || !carrier.hasRemaining()) {
+                return null;
+            }
+            byte type = carrier.get();
+            if (type == BinaryInjectorImpl.TYPE_LONG && carrier.remaining() >= 8) {
+                context.addStateItem(key, carrier.getLong());
+            } else if (type == BinaryInjectorImpl.TYPE_STRING) {
+                String value = ByteBufferCodec.readString(carrier);
+                if (value == null) {
+                    return null;
+                }
+                context.addStateItem(key, value);
+            } else {
+                return null;
+            }
+        }
+        int baggageCount = ByteBufferCodec.readVarint(carrier);
+        if (baggageCount == ByteBufferCodec.MALFORMED) {
+            return null;
+        }
+        for (int i = 0; i < baggageCount; i++) {
+            String key = ByteBufferCodec.readString(carrier);
+            String value = key == null ? null : ByteBufferCodec.readString(carrier);
+            if (value == null) {
+                return null;
+            }
+            context.addRawBaggageItem(key, 0, value);
+        }
+        return context;
+    }
+
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.SpanContext;
+import io.opentracing.internal.ByteBufferCodec;
+import io.opentracing.propagation.Injector;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Writes a SpanContext into a ByteBuffer carrier, starting at its position:
+ * <pre>
+ * version       1 byte, {@link #VERSION}
+ * flags         1 byte, reserved
+ * state count   varint
+ *   key         varint length + UTF-8
+ *   type        1 byte: {@link #TYPE_LONG} followed by 8 bytes, or {@link #TYPE_STRING} followed by a string
+ * baggage count varint
+ *   key, value  varint length + UTF-8 each
+ * </pre>
+ * Integral trace-state values (e.g. ids) are written with a fixed width.
+ *
+ * @see BinaryExtractorImpl
+ */
+final class BinaryInjectorImpl implements Injector<ByteBuffer> {
+
+    static final byte VERSION = 1;
+    static final byte TYPE_LONG = 0;
+    static final byte TYPE_STRING = 1;
+
+    private final AbstractTracer tracer;
+
+    BinaryInjectorImpl(AbstractTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * @throws java.nio.BufferOverflowException if the carrier has not enough space remaining
+     */
+    @Override
+    public void inject(SpanContext spanContext, ByteBuffer carrier) {
+        Map<String,Object> state = tracer.getTraceState(spanContext);
+        carrier.put(VERSION);
+        carrier.put((byte) 0);
+        ByteBufferCodec.writeVarint(carrier, state.size());
+        for (Map.Entry<String,Object> entry : state.entrySet()) {
+            ByteBufferCodec.writeString(carrier, entry.getKey());
+            Object value = entry.getValue();
+            if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                carrier.put(TYPE_LONG);
+                carrier.putLong(((Number) value).longValue());
+            } else {
+                carrier.put(TYPE_STRING);
+                ByteBufferCodec.writeString(carrier, value.toString());
+            }
+        }
+        if (!AbstractTracer.BAGGAGE_ENABLED) {
+            ByteBufferCodec.writeVarint(carrier, 0);
+            return;
+        }
+        int count = 0;
+        for (Map.Entry<String,String> ignored : spanContext.baggageItems()) {
+            count++;
+        }
+        ByteBufferCodec.writeVarint(carrier, count);
+        for (Map.Entry<String,String> entry : spanContext.baggageItems()) {
+            ByteBufferCodec.writeString(carrier, entry.getKey());
+            ByteBufferCodec.writeString(carrier, entry.getValue());
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.SpanContext;
+import io.opentracing.propagation.Extractor;
+import io.opentracing.propagation.TextMap;
+
+/**
+ * Extracts {@code traceparent} and {@code baggage} headers like {@link TraceParentExtractorImpl}, but returns the same
+ * context for repeated header values, e.g. for the messages of a batch sent by one producer. Contexts are cached in
+ * a {@link StripedLruCache} keyed by the raw header values, see {@link TraceContextHeaders}; they are immutable and
+ * safe to share.
+ *
+ * Carriers without a {@code traceparent} header, or with entries of the tracer's own keys, are extracted without the
+ * cache; unrelated entries, e.g. the HTTP headers of the application, are ignored. For tracers that opt in to
+ * unprefixed baggage, every entry is baggage, so only carriers holding nothing but the two headers are cached.
+ */
+final class CachingExtractorImpl implements Extractor<TextMap> {
+
+    private final TextMapExtractorImpl textMapExtractor;
+    private final TraceParentExtractorImpl delegate;
+    private final StripedLruCache<TraceContextHeaders.Key, ExtractedContext> cache;
+
+    CachingExtractorImpl(AbstractTracer tracer, int maximumSize) {
+        this.textMapExtractor = new TextMapExtractorImpl(tracer);
+        this.delegate = new TraceParentExtractorImpl(textMapExtractor);
+        this.cache = new StripedLruCache<>(maximumSize, 16);
+    }
+
+    @Override
+    public SpanContext extract(TextMap carrier) {
+        TraceContextHeaders headers = new TraceContextHeaders(textMapExtractor);
+        if (!headers.scan(carrier)) {
+            return delegate.extract(carrier);
+        }
+
+        TraceContextHeaders.Key cacheKey = headers.key();
+        ExtractedContext context = cache.get(cacheKey);
+        if (context == null) {
+            context = headers.decode();
+            cache.put(cacheKey, context);
+        }
+        return context;
+    }
+
+    StripedLruCache<TraceContextHeaders.Key, ExtractedContext> cache() {
+        return cache;
+    }
+
+}
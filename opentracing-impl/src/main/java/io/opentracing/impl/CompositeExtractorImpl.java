@@ -0,0 +1,187 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.SpanContext;
+import io.opentracing.internal.IdCodec;
+import io.opentracing.propagation.Extractor;
+import io.opentracing.propagation.TextMap;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+
+/**
+ * Extracts a context from whichever of several propagation schemes the carrier holds, e.g. while services migrate
+ * from one scheme to another. All schemes are identified in a single pass over the carrier, and the context of the
+ * scheme with the highest priority is returned; the others are dropped. A {@code baggage} header, and baggage entries
+ * if {@link Scheme#NATIVE} is accepted, are kept whichever scheme is chosen.
+ *
+ * Header names are matched ignoring case, so it suits HTTP_HEADERS as well as TEXT_MAP:
+ * <pre>{@code
+ * tracer.register(Format.Builtin.HTTP_HEADERS,
+ *         new CompositeExtractorImpl(tracer, Scheme.TRACE_PARENT, Scheme.NATIVE, Scheme.B3_SINGLE, Scheme.B3_MULTI));
+ * }</pre>
+ */
+final class CompositeExtractorImpl implements Extractor<TextMap> {
+
+    enum Scheme {
+        /** The tracer's own trace-state keys, see {@link AbstractTracer#traceStateKeys()} */
+        NATIVE,
+        /** The W3C {@code traceparent} header */
+        TRACE_PARENT,
+        /** The B3 headers {@code X-B3-TraceId}, {@code X-B3-SpanId}, {@code X-B3-Sampled} and {@code X-B3-Flags} */
+        B3_MULTI,
+        /** The B3 single header {@code b3} */
+        B3_SINGLE
+    }
+
+    static final String B3 = "b3";
+    static final String B3_TRACE_ID = "x-b3-traceid";
+    static final String B3_SPAN_ID = "x-b3-spanid";
+    static final String B3_SAMPLED = "x-b3-sampled";
+    static final String B3_FLAGS = "x-b3-flags";
+
+    private final TextMapExtractorImpl textMapExtractor;
+    private final Scheme[] priority;
+    private final boolean nativeEnabled;
+
+    /**
+     * @param priority the schemes to accept, highest priority first; all schemes in declaration order if empty
+     */
+    CompositeExtractorImpl(AbstractTracer tracer, Scheme... priority) {
+        this.textMapExtractor = new TextMapExtractorImpl(tracer);
+        this.priority = priority.length == 0 ? Scheme.values() : priority.clone();
+        if (EnumSet.copyOf(Arrays.asList(this.priority)).size() != this.priority.length) {
+            throw new IllegalArgumentException("Duplicate scheme in " + Arrays.toString(priority));
+        }
+        this.nativeEnabled = Arrays.asList(this.priority).contains(Scheme.NATIVE);
+    }
+
+    @Override
+    public SpanContext extract(TextMap carrier) {
+        ExtractedContext context = new ExtractedContext();
+        Candidates candidates = new Candidates();
+        boolean complete = TextMapExtractorImpl.forEachEntry(carrier, (key, value) -> {
+            if (TraceParentInjectorImpl.TRACE_PARENT.equalsIgnoreCase(key)) {
+                candidates.traceParent = value;
+            } else if (B3.equalsIgnoreCase(key)) {
+                candidates.b3 = value;
+            } else if (B3_TRACE_ID.equalsIgnoreCase(key)) {
+                candidates.b3TraceId = value;
+            } else if (B3_SPAN_ID.equalsIgnoreCase(key)) {
+                candidates.b3SpanId = value;
+            } else if (B3_SAMPLED.equalsIgnoreCase(key)) {
+                candidates.b3Sampled = value;
+            } else if (B3_FLAGS.equalsIgnoreCase(key)) {
+                candidates.b3Flags = value;
+            } else if (BaggageHeaderCodec.BAGGAGE.equalsIgnoreCase(key)) {
+                context.addRawBaggageHeader(value);
+            } else if (nativeEnabled) {
+                textMapExtractor.add(context, key, value);
+            }
+            return true;
+        });
+        if (!complete) {
+            return textMapExtractor.checkComplete(false, context);
+        }
+
+        boolean hasNativeState = !context.isEmpty();
+        for (Scheme scheme : priority) {
+            if (scheme == Scheme.NATIVE) {
+                if (hasNativeState) {
+                    return context;
+                }
+            } else if (candidates.setIdentifiers(scheme, context)) {
+                context.clearState();
+                return context;
+            }
+        }
+        context.clearState();
+        return context;
+    }
+
+    /** The raw values of the id-based schemes of one carrier, only decoded in priority order. */
+    private static final class Candidates {
+        String traceParent;
+        String b3;
+        String b3TraceId;
+        String b3SpanId;
+        String b3Sampled;
+        String b3Flags;
+
+        /** @return true if the scheme was present and valid, and its ids were set on the context */
+        boolean setIdentifiers(Scheme scheme, ExtractedContext context) {
+            switch (scheme) {
+                case TRACE_PARENT:
+                    return traceParent != null && TraceParentExtractorImpl.decode(traceParent, context);
+                case B3_SINGLE:
+                    return b3 != null && decodeB3Single(b3, context);
+                case B3_MULTI:
+                    return b3TraceId != null && b3SpanId != null
+                            && decodeB3(b3TraceId, 0, b3TraceId.length(), b3SpanId, 0, b3SpanId.length(),
+                                "d".equals(b3Sampled) || "1".equals(b3Sampled) || "true".equalsIgnoreCase(b3Sampled)
+                                    || "1".equals(b3Flags),
+                                context);
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * Decodes {@code <trace id>-<span id>[-<sampling state>[-<parent span id>]]}; a header with only a sampling
+     * state, e.g. {@code b3: 0}, holds no context.
+     */
+    static boolean decodeB3Single(String value, ExtractedContext context) {
+        int first = value.indexOf('-');
+        if (first < 0) {
+            return false;
+        }
+        int second = value.indexOf('-', first + 1);
+        int spanIdEnd = second < 0 ? value.length() : second;
+        boolean sampled = false;
+        if (second >= 0) {
+            int third = value.indexOf('-', second + 1);
+            int samplingEnd = third < 0 ? value.length() : third;
+            if (samplingEnd != second + 2) {
+                return false;
+            }
+            char sampling = value.charAt(second + 1);
+            if (sampling != '0' && sampling != '1' && sampling != 'd') {
+                return false;
+            }
+            sampled = sampling != '0';
+        }
+        return decodeB3(value, 0, first, value, first + 1, spanIdEnd, sampled, context);
+    }
+
+    private static boolean decodeB3(String traceId, int traceIdStart, int traceIdEnd,
+            String spanId, int spanIdStart, int spanIdEnd, boolean sampled, ExtractedContext context) {
+        int traceIdLength = traceIdEnd - traceIdStart;
+        if ((traceIdLength != 16 && traceIdLength != 32) || spanIdEnd - spanIdStart != 16
+                || !IdCodec.isHex(traceId, traceIdStart, traceIdLength)
+                || !IdCodec.isHex(spanId, spanIdStart, 16)) {
+            return false;
+        }
+        long high = IdCodec.parseHexHigh(traceId, traceIdStart, traceIdLength);
+        long low = IdCodec.parseHexLow(traceId, traceIdStart, traceIdLength);
+        long span = IdCodec.parseHex(spanId, spanIdStart, 16);
+        if ((high == 0 && low == 0) || span == 0) {
+            return false;
+        }
+        context.setTraceIdentifiers(high, low, span, sampled ? TraceIdentifiers.FLAG_SAMPLED : 0);
+        return true;
+    }
+
+}
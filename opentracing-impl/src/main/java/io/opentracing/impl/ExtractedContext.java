@@ -0,0 +1,231 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.SpanContext;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A compact SpanContext as produced by extraction, for use as a parent reference only.
+ *
+ * Trace state is kept as the raw carrier values (strings, or longs for binary carriers) in flat arrays. Baggage is kept as undecoded carrier entries
+ * and only decoded (e.g. stripped of its key prefix) when {@link #baggageItems()} or {@link #getBaggageItem(String)}
+ * is called, which many services never do. This includes a single-header {@code baggage} value, which is kept as is.
+ *
+ * Single-header formats store the numeric ids as primitives, see {@link TraceIdentifiers}.
+ *
+ * Instances are populated by a single extractor and effectively immutable once returned.
+ *
+ * @see AbstractTracer#extract(io.opentracing.propagation.Format, Object)
+ */
+final class ExtractedContext implements SpanContext, TraceIdentifiers {
+
+    /**
+     * Returned instead of throwing by lenient extraction, and for carriers over the extraction limits. It is skipped
+     * when used as a reference, so the span starts a new trace.
+     *
+     * @see AbstractTracer#setLenientExtraction(boolean)
+     */
+    static final ExtractedContext INVALID = new ExtractedContext();
+
+    private boolean hasTraceIdentifiers;
+    private long traceIdHigh;
+    private long traceIdLow;
+    private long spanId;
+    private byte traceFlags;
+
+    private Object[] state = new Object[4];
+    private int stateSize;
+    private String[] rawBaggage;
+    private int[] baggagePrefixLengths;
+    private int baggageSize;
+    private String rawBaggageHeader;
+
+    private volatile Map<String, String> baggage;
+
+    /** Sets the numeric ids; only to be called by the extractor creating this context. */
+    void setTraceIdentifiers(long traceIdHigh, long traceIdLow, long spanId, byte traceFlags) {
+        this.hasTraceIdentifiers = true;
+        this.traceIdHigh = traceIdHigh;
+        this.traceIdLow = traceIdLow;
+        this.spanId = spanId;
+        this.traceFlags = traceFlags;
+    }
+
+    /** Adds a trace-state item; only to be called by the extractor creating this context. */
+    void addStateItem(String key, Object value) {
+        if (stateSize * 2 == state.length) {
+            state = Arrays.copyOf(state, state.length * 2);
+        }
+        state[stateSize * 2] = key;
+        state[stateSize * 2 + 1] = value;
+        stateSize++;
+    }
+
+    /**
+     * Adds an undecoded baggage entry; only to be called by the extractor creating this context.
+     *
+     * @param prefixLength the length of the baggage key prefix of the carrier key
+     */
+    void addRawBaggageItem(String carrierKey, int prefixLength, String value) {
+        if (rawBaggage == null) {
+            rawBaggage = new String[8];
+            baggagePrefixLengths = new int[4];
+        } else if (baggageSize == baggagePrefixLengths.length) {
+            rawBaggage = Arrays.copyOf(rawBaggage, rawBaggage.length * 2);
+            baggagePrefixLengths = Arrays.copyOf(baggagePrefixLengths, baggagePrefixLengths.length * 2);
+        }
+        rawBaggage[baggageSize * 2] = carrierKey;
+        rawBaggage[baggageSize * 2 + 1] = value;
+        baggagePrefixLengths[baggageSize] = prefixLength;
+        baggageSize++;
+    }
+
+    /**
+     * Adds an undecoded {@code baggage} header, see {@link BaggageHeaderCodec}; only to be called by the extractor
+     * creating this context.
+     */
+    void addRawBaggageHeader(String header) {
+        rawBaggageHeader = rawBaggageHeader == null ? header : rawBaggageHeader + ',' + header;
+    }
+
+    /**
+     * Drops the trace-state items, e.g. as the context of another scheme was chosen; only to be called by the
+     * extractor creating this context.
+     */
+    void clearState() {
+        Arrays.fill(state, 0, stateSize * 2, null);
+        stateSize = 0;
+    }
+
+    /** @return the raw value of a trace-state item, or null if the carrier did not contain it */
+    Object getStateItem(String key) {
+        for (int i = 0; i < stateSize; i++) {
+            if (state[i * 2].equals(key)) {
+                return state[i * 2 + 1];
+            }
+        }
+        return null;
+    }
+
+    /** @return the trace-state items in extraction order */
+    Iterable<Map.Entry<String, Object>> stateItems() {
+        return () -> new Iterator<Map.Entry<String, Object>>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < stateSize;
+            }
+
+            @Override
+            public Map.Entry<String, Object> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int i = next++;
+                return new AbstractMap.SimpleImmutableEntry<>((String) state[i * 2], state[i * 2 + 1]);
+            }
+        };
+    }
+
+    /** @return true if neither trace state nor trace identifiers were extracted */
+    boolean isEmpty() {
+        return stateSize == 0 && !hasTraceIdentifiers;
+    }
+
+    @Override
+    public boolean hasTraceIdentifiers() {
+        return hasTraceIdentifiers;
+    }
+
+    @Override
+    public long traceIdHigh() {
+        return traceIdHigh;
+    }
+
+    @Override
+    public long traceIdLow() {
+        return traceIdLow;
+    }
+
+    @Override
+    public long spanId() {
+        return spanId;
+    }
+
+    @Override
+    public byte traceFlags() {
+        return traceFlags;
+    }
+
+    /** @return the decoded baggage item, or null if there is none for the key */
+    String getBaggageItem(String key) {
+        return decodedBaggage().get(key);
+    }
+
+    @Override
+    public Iterable<Map.Entry<String, String>> baggageItems() {
+        return decodedBaggage().entrySet();
+    }
+
+    /** @return true once the baggage was decoded, i.e. read */
+    boolean isBaggageDecoded() {
+        return baggage != null;
+    }
+
+    private Map<String, String> decodedBaggage() {
+        Map<String, String> decoded = baggage;
+        if (decoded == null) {
+            if (baggageSize == 0 && rawBaggageHeader == null) {
+                decoded = Collections.emptyMap();
+            } else {
+                decoded = new HashMap<>(baggageSize * 2 + 8);
+                if (rawBaggageHeader != null) {
+                    BaggageHeaderCodec.decode(rawBaggageHeader, decoded);
+                }
+                for (int i = 0; i < baggageSize; i++) {
+                    decoded.put(rawBaggage[i * 2].substring(baggagePrefixLengths[i]), rawBaggage[i * 2 + 1]);
+                }
+                decoded = Collections.unmodifiableMap(decoded);
+            }
+            baggage = decoded;
+        }
+        return decoded;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ExtractedContext{");
+        if (hasTraceIdentifiers) {
+            sb.append("traceIdHigh=").append(traceIdHigh).append(", traceIdLow=").append(traceIdLow)
+                    .append(", spanId=").append(spanId).append(", traceFlags=").append(traceFlags).append(", ");
+        }
+        for (int i = 0; i < stateSize; i++) {
+            sb.append(state[i * 2]).append('=').append(state[i * 2 + 1]).append(", ");
+        }
+        sb.append("baggageItems=").append(baggageSize);
+        if (rawBaggageHeader != null) {
+            sb.append(", baggage=").append(rawBaggageHeader);
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.SpanContext;
+import io.opentracing.propagation.HeaderSink;
+import io.opentracing.propagation.Injector;
+
+import java.util.Map;
+
+/**
+ * Writes the headers of the HTTP_HEADERS format into a {@link HeaderSink}. The headers of a span are the ones cached
+ * on it by {@link TraceParentInjectorImpl}, so they are written without being encoded again. Other contexts are
+ * streamed item by item, with integral trace-state values written as numbers.
+ */
+final class HeaderSinkInjectorImpl implements Injector<HeaderSink> {
+
+    private final AbstractTracer tracer;
+    private final TraceParentInjectorImpl httpHeadersInjector;
+
+    HeaderSinkInjectorImpl(AbstractTracer tracer, TraceParentInjectorImpl httpHeadersInjector) {
+        this.tracer = tracer;
+        this.httpHeadersInjector = httpHeadersInjector;
+    }
+
+    @Override
+    public void inject(SpanContext spanContext, HeaderSink carrier) {
+        if (spanContext instanceof AbstractSpan) {
+            String[] headers = httpHeadersInjector.headers(spanContext);
+            for (int i = 0; i < headers.length; i += 2) {
+                carrier.putHeader(headers[i], headers[i + 1]);
+            }
+            return;
+        }
+        if (spanContext instanceof TraceIdentifiers && ((TraceIdentifiers) spanContext).hasTraceIdentifiers()) {
+            carrier.putHeader(TraceParentInjectorImpl.TRACE_PARENT,
+                    TraceParentInjectorImpl.encode((TraceIdentifiers) spanContext));
+        } else {
+            for (Map.Entry<String,Object> entry : tracer.getTraceState(spanContext).entrySet()) {
+                Object value = entry.getValue();
+                if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                    carrier.putHeader(entry.getKey(), ((Number) value).longValue());
+                } else {
+                    carrier.putHeader(entry.getKey(), value instanceof CharSequence
+                            ? (CharSequence) value : value.toString());
+                }
+            }
+        }
+        if (httpHeadersInjector.textMapInjector().isBaggageEnabled()) {
+            String baggage = BaggageHeaderCodec.encode(spanContext.baggageItems());
+            if (baggage != null) {
+                carrier.putHeader(BaggageHeaderCodec.BAGGAGE, baggage);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Precompiled matcher for the carrier keys of a tracer: exact trace-state keys and baggage key prefixes.
+ *
+ * Keys are compared ignoring ASCII case without allocating. Candidates are bucketed by their first character, so most
+ * unrelated keys (e.g. HTTP headers) are rejected after looking at one or two characters.
+ */
+final class KeyMatcher {
+
+    static final KeyMatcher EMPTY = new KeyMatcher(new ArrayList<>(), new ArrayList<>());
+
+    /** Candidates indexed by lower-cased first character; only ASCII keys can match. */
+    private final Match[][] candidates = new Match[128][];
+    private final boolean hasTraceStateKeys;
+    private final boolean hasBaggagePrefixes;
+
+    private KeyMatcher(Collection<String> traceStateKeys, Collection<String> baggagePrefixes) {
+        List<Match> all = new ArrayList<>();
+        for (String key : traceStateKeys) {
+            all.add(new Match(key, false));
+        }
+        for (String prefix : baggagePrefixes) {
+            all.add(new Match(prefix, true));
+        }
+        // exact keys first, then the longest prefix wins
+        all.sort((a, b) -> a.prefix != b.prefix ? (a.prefix ? 1 : -1) : b.key.length() - a.key.length());
+        for (Match match : all) {
+            if (match.key.isEmpty() || match.key.charAt(0) >= 128) {
+                throw new IllegalArgumentException("Carrier keys must be non-empty ASCII: " + match.key);
+            }
+            int bucket = toLowerCase(match.key.charAt(0));
+            Match[] current = candidates[bucket];
+            Match[] updated = new Match[current == null ? 1 : current.length + 1];
+            if (current != null) {
+                System.arraycopy(current, 0, updated, 0, current.length);
+            }
+            updated[updated.length - 1] = match;
+            candidates[bucket] = updated;
+        }
+        this.hasTraceStateKeys = !traceStateKeys.isEmpty();
+        this.hasBaggagePrefixes = !baggagePrefixes.isEmpty();
+    }
+
+    static KeyMatcher compile(Collection<String> traceStateKeys, Collection<String> baggagePrefixes) {
+        if (traceStateKeys.isEmpty() && baggagePrefixes.isEmpty()) {
+            return EMPTY;
+        }
+        return new KeyMatcher(traceStateKeys, baggagePrefixes);
+    }
+
+    /** @return true if trace-state keys were declared, i.e. keys can be classified without asking the span builder */
+    boolean hasTraceStateKeys() {
+        return hasTraceStateKeys;
+    }
+
+    /**
+     * @return true if baggage prefixes were declared; otherwise baggage is injected unprefixed, and every key that is
+     * not a trace-state key is baggage
+     */
+    boolean hasBaggagePrefixes() {
+        return hasBaggagePrefixes;
+    }
+
+    /**
+     * @return the matching trace-state key or baggage prefix, or null if the key is not a trace-state key and does
+     * not carry a baggage prefix
+     */
+    Match match(String key) {
+        if (key.isEmpty() || key.charAt(0) >= 128) {
+            return null;
+        }
+        Match[] bucket = candidates[toLowerCase(key.charAt(0))];
+        if (bucket == null) {
+            return null;
+        }
+        for (Match match : bucket) {
+            int length = match.key.length();
+            if ((match.prefix ? key.length() > length : key.length() == length)
+                    && regionMatchesIgnoreAsciiCase(key, match.key, length)) {
+                return match;
+            }
+        }
+        return null;
+    }
+
+    private static boolean regionMatchesIgnoreAsciiCase(String key, String candidate, int length) {
+        // the first character already matched through the bucket
+        for (int i = 1; i < length; i++) {
+            char a = key.charAt(i);
+            char b = candidate.charAt(i);
+            if (a != b && toLowerCase(a) != toLowerCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int toLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    static final class Match {
+        private final String key;
+        private final boolean prefix;
+
+        private Match(String key, boolean prefix) {
+            this.key = key;
+            this.prefix = prefix;
+        }
+
+        /** @return the declared trace-state key or baggage prefix, in its declared case */
+        String key() {
+            return key;
+        }
+
+        /** @return true if this is a baggage prefix, false if it is a trace-state key */
+        boolean isBaggagePrefix() {
+            return prefix;
+        }
+    }
+}
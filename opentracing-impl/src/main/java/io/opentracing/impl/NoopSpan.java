@@ -32,6 +32,11 @@ final class NoopSpan extends AbstractSpan implements io.opentracing.NoopSpan, No
     public void finish(long finishMicros) {
     }
 
+    @Override
+    public boolean isRecording() {
+        return false;
+    }
+
     @Override
     public String getBaggageItem(String key) {
         return io.opentracing.NoopSpan.INSTANCE.getBaggageItem(key);
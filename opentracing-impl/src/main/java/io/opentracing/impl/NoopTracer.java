@@ -30,6 +30,11 @@ final class NoopTracer extends AbstractTracer implements io.opentracing.NoopTrac
         return io.opentracing.NoopSpanBuilder.INSTANCE;
     }
 
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
     @Override
     AbstractSpanBuilder createSpanBuilder(String operationName) {
         return NoopSpanBuilder.INSTANCE;
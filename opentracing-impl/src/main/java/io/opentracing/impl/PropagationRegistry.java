@@ -0,0 +1,140 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.propagation.Extractor;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.Injector;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The injectors and extractors of a tracer, indexed by a small integer slot per format rather than looked up in a map.
+ * The builtin formats have fixed slots resolved by identity comparisons, so dispatching them is a read of a final
+ * array. Custom formats get the following slots on registration, and are resolved by a scan of a copy-on-write array,
+ * as a tracer has few of them.
+ *
+ * Reads are lock-free; registrations are synchronized, and usually only happen during startup.
+ */
+final class PropagationRegistry {
+
+    private static final int BUILTIN_SLOTS = 4;
+
+    private final AtomicReferenceArray<Injector<?>> builtinInjectors = new AtomicReferenceArray<>(BUILTIN_SLOTS);
+    private final AtomicReferenceArray<Extractor<?>> builtinExtractors = new AtomicReferenceArray<>(BUILTIN_SLOTS);
+
+    /** The custom formats in slot order, starting at {@link #BUILTIN_SLOTS} */
+    private volatile Format<?>[] customFormats = new Format<?>[0];
+    private volatile Injector<?>[] customInjectors = new Injector<?>[0];
+    private volatile Extractor<?>[] customExtractors = new Extractor<?>[0];
+
+    /** @return the injector, or null if none is registered for the format */
+    @SuppressWarnings("unchecked")
+    <C> Injector<C> findInjector(Format<C> format) {
+        int slot = builtinSlot(format);
+        if (slot >= 0) {
+            return (Injector<C>) builtinInjectors.get(slot);
+        }
+        Injector<?>[] injectors = customInjectors;
+        slot = customSlot(format, injectors.length);
+        return slot < 0 ? null : (Injector<C>) injectors[slot];
+    }
+
+    /** @return the extractor, or null if none is registered for the format */
+    @SuppressWarnings("unchecked")
+    <C> Extractor<C> findExtractor(Format<C> format) {
+        int slot = builtinSlot(format);
+        if (slot >= 0) {
+            return (Extractor<C>) builtinExtractors.get(slot);
+        }
+        Extractor<?>[] extractors = customExtractors;
+        slot = customSlot(format, extractors.length);
+        return slot < 0 ? null : (Extractor<C>) extractors[slot];
+    }
+
+    /** @return the injector previously registered for the format, or null */
+    @SuppressWarnings("unchecked")
+    synchronized <C> Injector<C> register(Format<C> format, Injector<C> injector) {
+        int slot = builtinSlot(format);
+        if (slot >= 0) {
+            return (Injector<C>) builtinInjectors.getAndSet(slot, injector);
+        }
+        slot = addCustomSlot(format);
+        Injector<?>[] injectors = customInjectors.clone();
+        Injector<C> previous = (Injector<C>) injectors[slot];
+        injectors[slot] = injector;
+        customInjectors = injectors;
+        return previous;
+    }
+
+    /** @return the extractor previously registered for the format, or null */
+    @SuppressWarnings("unchecked")
+    synchronized <C> Extractor<C> register(Format<C> format, Extractor<C> extractor) {
+        int slot = builtinSlot(format);
+        if (slot >= 0) {
+            return (Extractor<C>) builtinExtractors.getAndSet(slot, extractor);
+        }
+        slot = addCustomSlot(format);
+        Extractor<?>[] extractors = customExtractors.clone();
+        Extractor<C> previous = (Extractor<C>) extractors[slot];
+        extractors[slot] = extractor;
+        customExtractors = extractors;
+        return previous;
+    }
+
+    private static int builtinSlot(Format<?> format) {
+        if (format == Format.Builtin.HTTP_HEADERS) {
+            return 0;
+        } else if (format == Format.Builtin.TEXT_MAP) {
+            return 1;
+        } else if (format == Format.Builtin.BINARY) {
+            return 2;
+        } else if (format == Format.Builtin.HEADER_BLOCK) {
+            return 3;
+        }
+        return -1;
+    }
+
+    /**
+     * @param length the length of the codec array read by the caller, as a custom format is published before its
+     * codec arrays grow
+     * @return the index of the format in the custom arrays, or -1
+     */
+    private int customSlot(Format<?> format, int length) {
+        Format<?>[] formats = customFormats;
+        for (int i = 0; i < Math.min(formats.length, length); i++) {
+            if (formats[i].equals(format)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** @return the index of the format in the custom arrays, after growing them for a new format */
+    private int addCustomSlot(Format<?> format) {
+        Format<?>[] formats = customFormats;
+        for (int i = 0; i < formats.length; i++) {
+            if (formats[i].equals(format)) {
+                return i;
+            }
+        }
+        customInjectors = Arrays.copyOf(customInjectors, formats.length + 1);
+        customExtractors = Arrays.copyOf(customExtractors, formats.length + 1);
+        formats = Arrays.copyOf(formats, formats.length + 1);
+        formats[formats.length - 1] = format;
+        customFormats = formats;
+        return formats.length - 1;
+    }
+}
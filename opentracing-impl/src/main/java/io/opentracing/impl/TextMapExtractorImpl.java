@@ -13,32 +13,124 @@
  */
 package io.opentracing.impl;
 
-import io.opentracing.Tracer;
+import io.opentracing.SpanContext;
 import java.util.Map;
 
 import io.opentracing.propagation.Extractor;
+import io.opentracing.propagation.KeyedTextMap;
 import io.opentracing.propagation.TextMap;
 
 final class TextMapExtractorImpl implements Extractor<TextMap> {
 
     private final AbstractTracer tracer;
+    /** Only asked isTraceState() for tracers that do not declare their trace-state keys. */
+    private volatile AbstractSpanBuilder probe;
 
     TextMapExtractorImpl(AbstractTracer tracer) {
         this.tracer = tracer;
     }
 
     @Override
-    public Tracer.SpanBuilder extract(TextMap carrier) {
+    public SpanContext extract(TextMap carrier) {
 
-        AbstractSpanBuilder builder = tracer.createSpanBuilder("extracted");
-        for (Map.Entry<String, String> entry : carrier) {
-            if (builder.isTraceState(entry.getKey(), entry.getValue())) {
-                builder.withStateItem(entry.getKey(), entry.getValue());
+        ExtractedContext context = new ExtractedContext();
+        boolean complete = forEachEntry(carrier, (key, value) -> {
+            add(context, key, value);
+            return true;
+        });
+        return checkComplete(complete, context);
+    }
+
+    /**
+     * @return the context if the carrier was visited completely, otherwise {@link ExtractedContext#INVALID} in lenient
+     * mode
+     * @throws IllegalArgumentException if the carrier was over a limit of {@link #forEachEntry}, unless lenient
+     */
+    ExtractedContext checkComplete(boolean complete, ExtractedContext context) {
+        if (complete) {
+            return context;
+        }
+        if (tracer.isLenientExtraction()) {
+            return ExtractedContext.INVALID;
+        }
+        throw new IllegalArgumentException("Carrier exceeds " + AbstractTracer.MAX_EXTRACTED_ENTRIES + " entries or "
+                + AbstractTracer.MAX_EXTRACTED_CHARS + " characters");
+    }
+
+    /**
+     * Visits the entries of the carrier, without allocating an entry each if it is a {@link KeyedTextMap}. Stops
+     * after {@link AbstractTracer#MAX_EXTRACTED_ENTRIES} entries or {@link AbstractTracer#MAX_EXTRACTED_CHARS}
+     * characters, so that the cost of a hostile carrier is bounded.
+     *
+     * @return false if the carrier was over a limit and not visited completely
+     */
+    static boolean forEachEntry(TextMap carrier, KeyedTextMap.EntryVisitor visitor) {
+        BoundedVisitor bounded = new BoundedVisitor(visitor);
+        if (carrier instanceof KeyedTextMap) {
+            ((KeyedTextMap) carrier).forEachEntry(bounded);
+        } else {
+            for (Map.Entry<String, String> entry : carrier) {
+                if (!bounded.visit(entry.getKey(), entry.getValue())) {
+                    break;
+                }
+            }
+        }
+        return !bounded.exceeded;
+    }
+
+    private static final class BoundedVisitor implements KeyedTextMap.EntryVisitor {
+        private final KeyedTextMap.EntryVisitor visitor;
+        private int entries;
+        private long chars;
+        boolean exceeded;
+
+        BoundedVisitor(KeyedTextMap.EntryVisitor visitor) {
+            this.visitor = visitor;
+        }
+
+        @Override
+        public boolean visit(String key, String value) {
+            chars += key.length() + (value == null ? 0 : value.length());
+            if (++entries > AbstractTracer.MAX_EXTRACTED_ENTRIES || chars > AbstractTracer.MAX_EXTRACTED_CHARS) {
+                exceeded = true;
+                return false;
+            }
+            return visitor.visit(key, value);
+        }
+    }
+
+    /** Adds a carrier entry to the context as trace state or baggage, or skips it if it is unrelated. */
+    void add(ExtractedContext context, String key, String value) {
+        KeyMatcher matcher = tracer.keyMatcher();
+        KeyMatcher.Match match = matcher.match(key);
+        if (match != null) {
+            if (match.isBaggagePrefix()) {
+                context.addRawBaggageItem(key, match.key().length(), value);
             } else {
-                builder.withBaggageItem(entry.getKey(), entry.getValue());
+                context.addStateItem(match.key(), value);
             }
+        } else if (!matcher.hasTraceStateKeys() && probe().isTraceState(key, value)) {
+            context.addStateItem(key, value);
+        } else if (!matcher.hasBaggagePrefixes()) {
+            context.addRawBaggageItem(key, 0, value); // opted in to unprefixed baggage, see TextMapInjectorImpl
+        }
+        // otherwise an unrelated entry, e.g. an HTTP header of the application
+    }
+
+    /** @return true if {@link #add} would not skip the entry */
+    boolean isTracerEntry(String key, String value) {
+        KeyMatcher matcher = tracer.keyMatcher();
+        return matcher.match(key) != null || !matcher.hasBaggagePrefixes()
+                || !matcher.hasTraceStateKeys() && probe().isTraceState(key, value);
+    }
+
+    private AbstractSpanBuilder probe() {
+        AbstractSpanBuilder builder = probe;
+        if (builder == null) {
+            builder = tracer.createSpanBuilder("extracted");
+            probe = builder;
         }
         return builder;
     }
 
-}
\ No newline at end of file
+}
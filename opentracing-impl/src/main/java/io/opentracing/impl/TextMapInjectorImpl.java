@@ -14,14 +14,24 @@
 package io.opentracing.impl;
 
 import io.opentracing.SpanContext;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import io.opentracing.propagation.Injector;
 import io.opentracing.propagation.TextMap;
 
+/**
+ * Writes one carrier entry per trace-state item and per baggage item. The entries of a span are encoded once and
+ * cached on it, so injecting the same span into many carriers does not re-encode it.
+ *
+ * @see AbstractSpan#encodedHeaders(Object, boolean, Function)
+ */
 final class TextMapInjectorImpl implements Injector<TextMap> {
 
     private final AbstractTracer tracer;
+    private final Function<SpanContext, String[]> encoding = this::encode;
     private boolean baggageEnabled = AbstractTracer.BAGGAGE_ENABLED;
 
     TextMapInjectorImpl(AbstractTracer tracer) {
@@ -30,17 +40,69 @@ final class TextMapInjectorImpl implements Injector<TextMap> {
 
     @Override
     public void inject(SpanContext spanContext, TextMap carrier) {
+        put(headers(spanContext, this, baggageEnabled, encoding), carrier);
+    }
 
+    /**
+     * @return the flat name/value pairs of the encoding, cached on the context if it is a span
+     */
+    static String[] headers(SpanContext spanContext, Object encoder, boolean withBaggage,
+            Function<SpanContext, String[]> encoding) {
+        if (spanContext instanceof AbstractSpan) {
+            return ((AbstractSpan) spanContext).encodedHeaders(encoder, withBaggage, encoding);
+        }
+        return encoding.apply(spanContext);
+    }
+
+    static void put(String[] headers, TextMap carrier) {
+        for (int i = 0; i < headers.length; i += 2) {
+            carrier.put(headers[i], headers[i + 1]);
+        }
+    }
+
+    private String[] encode(SpanContext spanContext) {
+        List<String> headers = new ArrayList<>();
+        addTraceState(spanContext, headers);
+        addBaggage(spanContext, headers);
+        return headers.toArray(new String[headers.size()]);
+    }
+
+    /** Adds the trace-state items only, as name/value pairs. */
+    void addTraceState(SpanContext spanContext, List<String> headers) {
         for (Map.Entry<String,Object> entry : tracer.getTraceState(spanContext).entrySet()) {
-            carrier.put(entry.getKey(), entry.getValue().toString());
+            headers.add(entry.getKey());
+            headers.add(encodeValue(entry.getValue()));
         }
+    }
+
+    /** @return integral values in decimal, and other values as their string */
+    static String encodeValue(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return Long.toString(((Number) value).longValue());
+        }
+        return value.toString();
+    }
+
+    /** Adds the baggage items only, as name/value pairs. */
+    void addBaggage(SpanContext spanContext, List<String> headers) {
         if (baggageEnabled) {
+            String prefix = baggageKeyPrefix();
             for (Map.Entry<String,String> entry : spanContext.baggageItems()) {
-                carrier.put(entry.getKey(), entry.getValue());
+                headers.add(prefix.isEmpty() ? entry.getKey() : prefix + entry.getKey());
+                headers.add(entry.getValue());
             }
         }
     }
 
+    private String baggageKeyPrefix() {
+        List<String> prefixes = tracer.baggageKeyPrefixes();
+        return prefixes.isEmpty() ? "" : prefixes.get(0);
+    }
+
+    boolean isBaggageEnabled() {
+        return baggageEnabled;
+    }
+
     void setBaggageEnabled(boolean baggageEnabled) {
         this.baggageEnabled = baggageEnabled;
     }
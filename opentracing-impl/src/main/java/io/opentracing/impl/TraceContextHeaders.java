@@ -0,0 +1,107 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.propagation.KeyedTextMap;
+import io.opentracing.propagation.TextMap;
+
+/**
+ * Scratch state for scanning a text carrier for the {@code traceparent} and {@code baggage} headers in one pass,
+ * reusable across carriers. A carrier whose context lies entirely in these headers can be decoded from their raw
+ * values alone, so equal values give equal contexts, which callers cache or dedupe.
+ */
+final class TraceContextHeaders implements KeyedTextMap.EntryVisitor {
+
+    private final TextMapExtractorImpl extractor;
+    private String traceParent;
+    private String baggage;
+    private boolean hasTracerKeys;
+
+    /**
+     * @param extractor the tracer's text extractor, which tells the entries of the tracer apart from unrelated ones
+     */
+    TraceContextHeaders(TextMapExtractorImpl extractor) {
+        this.extractor = extractor;
+    }
+
+    /**
+     * @return true if the carrier's context lies in the traceparent and baggage headers only, in which case it can be
+     * decoded by {@link #decode()}
+     */
+    boolean scan(TextMap carrier) {
+        traceParent = null;
+        baggage = null;
+        hasTracerKeys = false;
+        return TextMapExtractorImpl.forEachEntry(carrier, this) && traceParent != null && !hasTracerKeys;
+    }
+
+    @Override
+    public boolean visit(String key, String value) {
+        if (TraceParentInjectorImpl.TRACE_PARENT.equalsIgnoreCase(key)) {
+            traceParent = value;
+        } else if (BaggageHeaderCodec.BAGGAGE.equalsIgnoreCase(key)) {
+            baggage = baggage == null ? value : baggage + ',' + value;
+        } else if (extractor.isTracerEntry(key, value)) {
+            hasTracerKeys = true;
+            return false;
+        }
+        return true;
+    }
+
+    /** @return the raw header values of the last scanned carrier, as a key for equal contexts */
+    Key key() {
+        return new Key(traceParent, baggage);
+    }
+
+    /** @return the context of the last scanned carrier */
+    ExtractedContext decode() {
+        ExtractedContext context = new ExtractedContext();
+        TraceParentExtractorImpl.decode(traceParent, context);
+        if (baggage != null) {
+            context.addRawBaggageHeader(baggage);
+        }
+        return context;
+    }
+
+    /** The raw header values, referenced rather than concatenated; baggage is null if there was none. */
+    static final class Key {
+        private final String traceParent;
+        private final String baggage;
+        private final int hash;
+
+        Key(String traceParent, String baggage) {
+            this.traceParent = traceParent;
+            this.baggage = baggage;
+            this.hash = 31 * traceParent.hashCode() + (baggage == null ? 0 : baggage.hashCode());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && traceParent.equals(other.traceParent)
+                    && (baggage == null ? other.baggage == null : baggage.equals(other.baggage));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+/**
+ * Numeric identifiers of a SpanContext, for propagation formats with fixed-width ids such as the W3C
+ * {@code traceparent} header.
+ *
+ * Span contexts of a tracer implement this to have the HTTP_HEADERS format write a single {@code traceparent} header
+ * instead of one header per trace-state item.
+ *
+ * @see TraceParentInjectorImpl
+ */
+interface TraceIdentifiers {
+
+    /** The sampled bit of {@link #traceFlags()}. */
+    byte FLAG_SAMPLED = 0x01;
+
+    /** @return false if this context carries no numeric ids, in which case the other methods are meaningless */
+    boolean hasTraceIdentifiers();
+
+    /** @return the upper 64 bits of the trace id, 0 for 64-bit trace ids */
+    long traceIdHigh();
+
+    /** @return the lower 64 bits of the trace id */
+    long traceIdLow();
+
+    long spanId();
+
+    /** @return the trace flags, e.g. {@link #FLAG_SAMPLED} */
+    byte traceFlags();
+}
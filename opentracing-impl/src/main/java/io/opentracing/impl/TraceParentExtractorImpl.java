@@ -0,0 +1,119 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.SpanContext;
+import io.opentracing.internal.IdCodec;
+import io.opentracing.propagation.BatchExtractor;
+import io.opentracing.propagation.TextMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a W3C {@code traceparent} header, matched ignoring case, into the numeric ids of an {@link ExtractedContext},
+ * and keeps a {@code baggage} header undecoded until the baggage is read.
+ * All other headers are classified by the text map extractor, so contexts written one header per trace-state item
+ * are still understood.
+ *
+ * A malformed {@code traceparent} header is ignored rather than failing the request carrying it. This includes
+ * uppercase hex digits, which the W3C specification does not allow.
+ *
+ * A batch of carriers is scanned with shared {@link TraceContextHeaders} scratch state, and carriers with the same
+ * header values get the same context.
+ */
+final class TraceParentExtractorImpl implements BatchExtractor<TextMap> {
+
+    private static final int TRACE_ID_OFFSET = 3;
+    private static final int SPAN_ID_OFFSET = 36;
+    private static final int FLAGS_OFFSET = 53;
+
+    private final TextMapExtractorImpl textMapExtractor;
+
+    TraceParentExtractorImpl(TextMapExtractorImpl textMapExtractor) {
+        this.textMapExtractor = textMapExtractor;
+    }
+
+    @Override
+    public SpanContext extract(TextMap carrier) {
+        ExtractedContext context = new ExtractedContext();
+        boolean complete = TextMapExtractorImpl.forEachEntry(carrier, (key, value) -> {
+            if (TraceParentInjectorImpl.TRACE_PARENT.equalsIgnoreCase(key)) {
+                decode(value, context);
+            } else if (BaggageHeaderCodec.BAGGAGE.equalsIgnoreCase(key)) {
+                context.addRawBaggageHeader(value);
+            } else {
+                textMapExtractor.add(context, key, value);
+            }
+            return true;
+        });
+        return textMapExtractor.checkComplete(complete, context);
+    }
+
+    @Override
+    public List<SpanContext> extractAll(List<? extends TextMap> carriers) {
+        List<SpanContext> contexts = new ArrayList<>(carriers.size());
+        TraceContextHeaders headers = new TraceContextHeaders(textMapExtractor);
+        Map<TraceContextHeaders.Key, ExtractedContext> batch = new HashMap<>();
+        for (TextMap carrier : carriers) {
+            if (headers.scan(carrier)) {
+                TraceContextHeaders.Key key = headers.key();
+                ExtractedContext context = batch.get(key);
+                if (context == null) {
+                    context = headers.decode();
+                    batch.put(key, context);
+                }
+                contexts.add(context);
+            } else {
+                contexts.add(extract(carrier));
+            }
+        }
+        return contexts;
+    }
+
+    /**
+     * @return true if the value was a valid traceparent and its ids were set on the context
+     */
+    static boolean decode(String value, ExtractedContext context) {
+        // future versions may append fields, version 00 must have the exact length
+        if (value == null || value.length() < TraceParentInjectorImpl.LENGTH
+                || value.charAt(2) != '-' || value.charAt(SPAN_ID_OFFSET - 1) != '-'
+                || value.charAt(FLAGS_OFFSET - 1) != '-'
+                || !IdCodec.isLowerHex(value, 0, 2)
+                || !IdCodec.isLowerHex(value, TRACE_ID_OFFSET, 32)
+                || !IdCodec.isLowerHex(value, SPAN_ID_OFFSET, 16)
+                || !IdCodec.isLowerHex(value, FLAGS_OFFSET, 2)) {
+            return false;
+        }
+        int version = (int) IdCodec.parseHex(value, 0, 2);
+        if (version == 0xff
+                || (version == 0 && value.length() != TraceParentInjectorImpl.LENGTH)
+                || (version != 0 && value.length() > TraceParentInjectorImpl.LENGTH
+                    && value.charAt(TraceParentInjectorImpl.LENGTH) != '-')) {
+            return false;
+        }
+        long traceIdHigh = IdCodec.parseHex(value, TRACE_ID_OFFSET, 16);
+        long traceIdLow = IdCodec.parseHex(value, TRACE_ID_OFFSET + 16, 16);
+        long spanId = IdCodec.parseHex(value, SPAN_ID_OFFSET, 16);
+        if ((traceIdHigh == 0 && traceIdLow == 0) || spanId == 0) {
+            return false;
+        }
+        byte flags = (byte) IdCodec.parseHex(value, FLAGS_OFFSET, 2);
+        context.setTraceIdentifiers(traceIdHigh, traceIdLow, spanId, flags);
+        return true;
+    }
+
+}
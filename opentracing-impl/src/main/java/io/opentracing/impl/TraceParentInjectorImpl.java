@@ -0,0 +1,97 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.SpanContext;
+import io.opentracing.internal.IdCodec;
+import io.opentracing.propagation.Injector;
+import io.opentracing.propagation.TextMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Writes contexts that implement {@link TraceIdentifiers} as a single W3C {@code traceparent} header of the form
+ * {@code 00-<32 hex trace id>-<16 hex span id>-<2 hex flags>}. Other contexts are written by the text map injector,
+ * one header per trace-state item. Baggage is written as a single {@code baggage} header in either case.
+ * The headers of a span are cached on it, like those of the text map injector.
+ *
+ * @see BaggageHeaderCodec
+ */
+final class TraceParentInjectorImpl implements Injector<TextMap> {
+
+    static final String TRACE_PARENT = "traceparent";
+    static final int LENGTH = 55;
+
+    private static final ThreadLocal<char[]> BUFFER = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[LENGTH];
+        }
+    };
+
+    private final TextMapInjectorImpl textMapInjector;
+    private final Function<SpanContext, String[]> encoding = this::encodeHeaders;
+
+    TraceParentInjectorImpl(TextMapInjectorImpl textMapInjector) {
+        this.textMapInjector = textMapInjector;
+    }
+
+    @Override
+    public void inject(SpanContext spanContext, TextMap carrier) {
+        TextMapInjectorImpl.put(headers(spanContext), carrier);
+    }
+
+    /** @return the flat name/value pairs of the headers, cached on the context if it is a span */
+    String[] headers(SpanContext spanContext) {
+        return TextMapInjectorImpl.headers(spanContext, this, textMapInjector.isBaggageEnabled(), encoding);
+    }
+
+    TextMapInjectorImpl textMapInjector() {
+        return textMapInjector;
+    }
+
+    private String[] encodeHeaders(SpanContext spanContext) {
+        List<String> headers = new ArrayList<>(4);
+        if (spanContext instanceof TraceIdentifiers && ((TraceIdentifiers) spanContext).hasTraceIdentifiers()) {
+            headers.add(TRACE_PARENT);
+            headers.add(encode((TraceIdentifiers) spanContext));
+        } else {
+            textMapInjector.addTraceState(spanContext, headers);
+        }
+        if (textMapInjector.isBaggageEnabled()) {
+            String baggage = BaggageHeaderCodec.encode(spanContext.baggageItems());
+            if (baggage != null) {
+                headers.add(BaggageHeaderCodec.BAGGAGE);
+                headers.add(baggage);
+            }
+        }
+        return headers.toArray(new String[headers.size()]);
+    }
+
+    static String encode(TraceIdentifiers ids) {
+        char[] buffer = BUFFER.get();
+        buffer[0] = '0';
+        buffer[1] = '0';
+        buffer[2] = '-';
+        IdCodec.writeHex128(ids.traceIdHigh(), ids.traceIdLow(), buffer, 3);
+        buffer[35] = '-';
+        IdCodec.writeHex(ids.spanId(), buffer, 36);
+        buffer[52] = '-';
+        IdCodec.writeHexByte(ids.traceFlags(), buffer, 53);
+        return new String(buffer);
+    }
+
+}
@@ -0,0 +1,30 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.propagation;
+
+import io.opentracing.SpanContext;
+
+import java.util.List;
+
+/**
+ * An Extractor that extracts the carriers of a batch, e.g. of consumed messages, in one call, so that it can share
+ * scratch state across them and return one context for carriers holding the same context.
+ */
+public interface BatchExtractor<C> extends Extractor<C> {
+
+    /**
+     * @return the contexts extracted from the carriers, in the same order; equal contexts may be the same instance
+     */
+    List<SpanContext> extractAll(List<? extends C> carriers);
+}
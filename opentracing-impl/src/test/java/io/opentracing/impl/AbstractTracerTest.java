@@ -13,21 +13,25 @@
  */
 package io.opentracing.impl;
 
+import io.opentracing.References;
 import io.opentracing.Span;
 import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
-import io.opentracing.Tracer.SpanBuilder;
 import io.opentracing.propagation.Format;
 import io.opentracing.propagation.TextMap;
 import io.opentracing.propagation.TextMapExtractAdapter;
 import io.opentracing.propagation.TextMapInjectAdapter;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 
 public final class AbstractTracerTest {
@@ -76,7 +80,7 @@ public final class AbstractTracerTest {
 
         Map<String,String> map = Collections.singletonMap("garbageEntry", "garbageVal");
         TextMap carrier = new TextMapExtractAdapter(map);
-        SpanBuilder emptyResult = instance.extract(Format.Builtin.TEXT_MAP, carrier);
+        SpanContext emptyResult = instance.extract(Format.Builtin.TEXT_MAP, carrier);
         assertEquals("Should be nothing to extract", NoopSpanBuilder.INSTANCE, emptyResult);
     }
 
@@ -91,7 +95,7 @@ public final class AbstractTracerTest {
 
         Map<String,String> map = Collections.singletonMap("test-marker", "whatever");
         TextMap carrier = new TextMapExtractAdapter(map);
-        SpanBuilder result = instance.extract(Format.Builtin.TEXT_MAP, carrier);
+        SpanContext result = instance.extract(Format.Builtin.TEXT_MAP, carrier);
         assertEquals("Should find the marker", "whatever", ((TestSpanBuilder)result).operationName);
     }
 
@@ -112,6 +116,47 @@ public final class AbstractTracerTest {
         assert NoopSpan.INSTANCE == tracer.buildSpan("child").asChildOf(NoopSpanBuilder.INSTANCE).start();
     }
 
+    @Test
+    public void testIsRecording() {
+        AbstractTracer tracer = new TestTracerImpl();
+        assert tracer.isEnabled();
+        assert tracer.buildSpan("op").start().isRecording();
+        assert !NoopSpan.INSTANCE.isRecording();
+        assert !new NoopTracer().isEnabled();
+    }
+
+    @Test
+    public void testDeferredTags() {
+        AbstractTracer tracer = new TestTracerImpl();
+        AbstractSpan span = (AbstractSpan) tracer.buildSpan("op").withTag("builder", () -> "b").start();
+        span.setTag("span", () -> 42);
+        span.log(() -> Collections.singletonMap("event", "deferred"));
+        span.finish();
+
+        assertEquals("b", span.getTags().get("builder"));
+        assertEquals(42, span.getTags().get("span"));
+        assertEquals("deferred", span.getLogs().get(0).getFields().get("event"));
+    }
+
+    @Test
+    public void testDeferredTagsEvaluatedOnRead() {
+        AbstractTracer tracer = new TestTracerImpl();
+        AbstractSpan span = (AbstractSpan) tracer.buildSpan("op").start();
+        span.setTag("failing", () -> { throw new IllegalStateException(); });
+        span.log(() -> { throw new IllegalStateException(); });
+        span.finish();
+
+        assertFalse(span.getTags().containsKey("failing"));
+        assertNull(span.getLogs().get(0).getFields());
+    }
+
+    @Test
+    public void testDeferredTagsNotEvaluatedWhenNotRecording() {
+        NoopSpan.INSTANCE.setTag("span", () -> { throw new AssertionError("must not be evaluated"); });
+        NoopSpan.INSTANCE.log(() -> { throw new AssertionError("must not be evaluated"); });
+        assertEquals(0, NoopSpan.INSTANCE.getLogs().size());
+    }
+
     @Test
     public void propagatesBaggageFromSpan() {
         AbstractTracer tracer = new TestTracerImpl();
@@ -130,33 +175,65 @@ public final class AbstractTracerTest {
         assertEquals("val", child.getBaggageItem("bag"));
     }
 
-    final class TestTracerImpl extends AbstractTracer {
-
-        static final String OPERATION_NAME = "operation-name";
-
-        @Override
-        public AbstractSpanBuilder createSpanBuilder(String operationName) {
-            return new AbstractSpanBuilder(operationName) {
-                @Override
-                protected AbstractSpan createSpan() {
-                    return new TestSpanImpl(this.operationName);
-                }
-                @Override
-                boolean isTraceState(String key, Object value) {
-                    return false;
-                }
-
-                @Override
-                AbstractSpanBuilder withStateItem(String key, Object value) {
-                    throw new AssertionError("no trace state is possible");
-                }
-            };
-        }
-
-        @Override
-        Map<String, Object> getTraceState(SpanContext spanContext) {
-            return new HashMap<>(((AbstractSpan)spanContext).getBaggage());
-        }
+    @Test
+    public void testExtractedContextAsParent() {
+        Map<String,String> map = new HashMap<>();
+        map.put("x-trace-id", "42");
+        map.put("x-baggage-user", "alice");
+        AbstractTracer tracer = new KeyedTracerImpl();
+        SpanContext parent = tracer.extract(Format.Builtin.TEXT_MAP, new TextMapExtractAdapter(map));
+        Span child = tracer.buildSpan("child").asChildOf(parent).start();
+
+        assertEquals("alice", child.getBaggageItem("user"));
+    }
+
+    @Test
+    public void testExtractedBaggageIsDecodedOnFirstRead() {
+        Map<String,String> map = new HashMap<>();
+        map.put("x-trace-id", "42");
+        map.put("x-baggage-user", "alice");
+        AbstractTracer tracer = new KeyedTracerImpl();
+        ExtractedContext parent = (ExtractedContext) tracer.extract(
+                Format.Builtin.TEXT_MAP, new TextMapExtractAdapter(map));
+        Span child = tracer.buildSpan("child").asChildOf(parent).withTag("k", "v").start();
+        child.finish();
+        assertFalse(parent.isBaggageDecoded());
+
+        Span sibling = tracer.buildSpan("sibling").asChildOf(parent).start().setBaggageItem("role", "admin");
+        assertTrue(parent.isBaggageDecoded());
+        assertEquals("alice", sibling.getBaggageItem("user"));
+        assertEquals("admin", sibling.getBaggageItem("role"));
+        assertEquals("alice", child.getBaggageItem("user"));
+    }
+
+    @Test
+    public void testHttpHeadersWithoutTraceIdentifiers() {
+        AbstractTracer tracer = new KeyedTracerImpl();
+        Span span = tracer.buildSpan("op").start();
+        Map<String,String> map = new HashMap<>();
+        tracer.inject(span.context(), Format.Builtin.HTTP_HEADERS, new TextMapInjectAdapter(map));
+
+        assertEquals(Collections.singletonMap("x-trace-id", "42"), map);
+        ExtractedContext result = (ExtractedContext) tracer.extract(
+                Format.Builtin.HTTP_HEADERS, new TextMapExtractAdapter(map));
+        assertEquals("42", result.getStateItem("x-trace-id"));
+    }
+
+    @Test
+    public void testLenientExtraction() {
+        AbstractTracer tracer = new KeyedTracerImpl();
+        tracer.setLenientExtraction(true);
+
+        SpanContext unknown = tracer.extract(new Format<TextMap>() {}, new TextMapExtractAdapter(new HashMap<>()));
+        assertEquals(ExtractedContext.INVALID, unknown);
+        ByteBuffer carrier = ByteBuffer.wrap(new byte[] {1, 0, 5, 3, 'a'});
+        SpanContext corrupt = tracer.extract(Format.Builtin.BINARY, carrier);
+        assertEquals(ExtractedContext.INVALID, corrupt);
+        assertEquals(0, carrier.position());
+
+        AbstractSpanBuilder builder = tracer.createSpanBuilder("op").asChildOf(corrupt);
+        builder.addReference(References.FOLLOWS_FROM, corrupt);
+        assertEquals(0, builder.references.size());
     }
 
 }
@@ -0,0 +1,72 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.Span;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapExtractAdapter;
+import io.opentracing.propagation.TextMapInjectAdapter;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public final class BaggageHeaderCodecTest {
+
+    @Test
+    public void testEncode() {
+        assertNull(BaggageHeaderCodec.encode(Collections.<Map.Entry<String, String>>emptyList()));
+        assertEquals("a=1,b%20c=x%2Cy%3D%C3%A9", BaggageHeaderCodec.encode(Arrays.<Map.Entry<String, String>>asList(
+                new AbstractMap.SimpleEntry<>("a", "1"),
+                new AbstractMap.SimpleEntry<>("b c", "x,y=é"))));
+        assertEquals("b=2", BaggageHeaderCodec.encode(Arrays.<Map.Entry<String, String>>asList(
+                new AbstractMap.SimpleEntry<>("a", (String) null),
+                new AbstractMap.SimpleEntry<>("b", "2"))));
+    }
+
+    @Test
+    public void testDecode() {
+        Map<String, String> items = new LinkedHashMap<>();
+        BaggageHeaderCodec.decode(" a = 1 ,b%20c=x%2Cy;prop=1,,=novalue,bad=%2,noequals,d=%C3%A9,a=2", items);
+
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("a", "2");
+        expected.put("b c", "x,y");
+        expected.put("d", "é");
+        assertEquals(expected, items);
+    }
+
+    @Test
+    public void testBaggageHeaderRoundTrip() {
+        AbstractTracer tracer = new KeyedTracerImpl();
+        Span span = tracer.buildSpan("op").start()
+                .setBaggageItem("user", "alice smith")
+                .setBaggageItem("k,=;", "\u00e9\uD83D\uDE00");
+        Map<String,String> map = new HashMap<>();
+        tracer.inject(span.context(), Format.Builtin.HTTP_HEADERS, new TextMapInjectAdapter(map));
+
+        assertEquals(2, map.size());
+        assertEquals("42", map.get("x-trace-id"));
+        ExtractedContext result = (ExtractedContext) tracer.extract(
+                Format.Builtin.HTTP_HEADERS, new TextMapExtractAdapter(map));
+        assertEquals("alice smith", result.getBaggageItem("user"));
+        assertEquals("\u00e9\uD83D\uDE00", result.getBaggageItem("k,=;"));
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public final class BaggageLimitsTest {
+
+    @Test
+    public void testBaggageLimits() {
+        BaggageLimits limits = new BaggageLimits(2, 10, Arrays.asList("a", "b", "c"));
+        AbstractSpan span = new TestSpanImpl("op") {
+            @Override
+            BaggageLimits baggageLimits() {
+                return limits;
+            }
+        };
+        span.setBaggageItem("x", "1");
+        span.setBaggageItem("a", "1234");
+        span.setBaggageItem("b", "12345");
+        span.setBaggageItem("b", "1234");
+        span.setBaggageItem("c", "1");
+        span.setBaggageItem("a", "12345");
+
+        Map<String,String> expected = new HashMap<>();
+        expected.put("a", "1234");
+        expected.put("b", "1234");
+        assertEquals(expected, span.getBaggage());
+        assertEquals(1, limits.rejectedKeys());
+        assertEquals(1, limits.droppedForItems());
+        assertEquals(2, limits.droppedForBytes());
+    }
+
+    @Test
+    public void testLimitsPerTracer() {
+        AbstractTracer limited = new TestTracerImpl();
+        limited.setBaggageLimits(new BaggageLimits(1, Integer.MAX_VALUE, null));
+        AbstractTracer other = new TestTracerImpl();
+
+        AbstractSpan span = (AbstractSpan) limited.buildSpan("op").start();
+        span.setBaggageItem("a", "1").setBaggageItem("b", "2");
+        AbstractSpan otherSpan = (AbstractSpan) other.buildSpan("op").start();
+        otherSpan.setBaggageItem("a", "1").setBaggageItem("b", "2");
+
+        assertEquals(1, span.getBaggage().size());
+        assertEquals(1, limited.getBaggageLimits().droppedForItems());
+        assertEquals(2, otherSpan.getBaggage().size());
+        assertEquals(0, other.getBaggageLimits().droppedForItems());
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.Span;
+import io.opentracing.propagation.Format;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public final class BinaryExtractorImplTest {
+
+    @Test
+    public void testBinaryRoundTrip() {
+        AbstractTracer tracer = new KeyedTracerImpl();
+        Span span = tracer.buildSpan("op").start().setBaggageItem("user", "alice");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        tracer.inject(span.context(), Format.Builtin.BINARY, buffer);
+        buffer.flip();
+        ExtractedContext result = (ExtractedContext) tracer.extract(Format.Builtin.BINARY, buffer);
+
+        assertEquals(42L, result.getStateItem("x-trace-id"));
+        assertEquals("alice", result.getBaggageItem("user"));
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBinaryExtractCorrupt() {
+        new KeyedTracerImpl().extract(Format.Builtin.BINARY, ByteBuffer.wrap(new byte[] {1, 0, 5, 3, 'a'}));
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapExtractAdapter;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public final class CachingExtractorImplTest {
+
+    @Test
+    public void testCachingExtractor() {
+        AbstractTracer tracer = new KeyedTracerImpl();
+        CachingExtractorImpl extractor = new CachingExtractorImpl(tracer, 16);
+        tracer.register(Format.Builtin.HTTP_HEADERS, extractor);
+        Map<String,String> map = new HashMap<>();
+        map.put("traceparent", "00-000000000000002a0000000000000007-0000000000000003-01");
+        map.put("baggage", "user=alice");
+        map.put("Accept", "text/html");
+
+        ExtractedContext first = extractHeaders(tracer, map);
+        assertEquals(7L, first.traceIdLow());
+        assertEquals("alice", first.getBaggageItem("user"));
+        assertEquals(true, first == extractHeaders(tracer, map));
+        assertEquals(1, extractor.cache().hits());
+
+        map.put("baggage", "user=bob");
+        ExtractedContext other = extractHeaders(tracer, map);
+        assertEquals("bob", other.getBaggageItem("user"));
+        assertEquals(2, extractor.cache().size());
+
+        map.put("x-trace-id", "42");
+        ExtractedContext uncached = extractHeaders(tracer, map);
+        assertEquals("42", uncached.getStateItem("x-trace-id"));
+        assertEquals(false, uncached == extractHeaders(tracer, map));
+        assertEquals(2, extractor.cache().size());
+    }
+
+    @Test
+    public void testCachingWithoutDeclaredKeys() {
+        AbstractTracer tracer = new TestTracerImpl();
+        CachingExtractorImpl extractor = new CachingExtractorImpl(tracer, 16);
+        tracer.register(Format.Builtin.HTTP_HEADERS, extractor);
+        Map<String,String> map = new HashMap<>();
+        map.put("traceparent", "00-000000000000002a0000000000000007-0000000000000003-01");
+        map.put("baggage", "user=alice");
+
+        ExtractedContext first = extractHeaders(tracer, map);
+        assertEquals(true, first == extractHeaders(tracer, map));
+        assertEquals(1, extractor.cache().hits());
+        assertEquals(1, extractor.cache().size());
+
+        map.put("Accept", "text/html");
+        assertEquals(true, first == extractHeaders(tracer, map));
+        assertEquals(2, extractor.cache().hits());
+
+        map.put("ot-baggage-tenant", "acme");
+        ExtractedContext uncached = extractHeaders(tracer, map);
+        assertEquals("acme", uncached.getBaggageItem("tenant"));
+        assertEquals(null, uncached.getBaggageItem("Accept"));
+        assertEquals(1, extractor.cache().size());
+    }
+
+    private static ExtractedContext extractHeaders(AbstractTracer tracer, Map<String,String> map) {
+        return (ExtractedContext) tracer.extract(Format.Builtin.HTTP_HEADERS, new TextMapExtractAdapter(map));
+    }
+}
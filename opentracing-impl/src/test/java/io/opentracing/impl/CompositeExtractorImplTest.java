@@ -0,0 +1,90 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapExtractAdapter;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public final class CompositeExtractorImplTest {
+
+    @Test
+    public void testCompositeExtractorPriority() {
+        AbstractTracer tracer = new KeyedTracerImpl();
+        tracer.register(Format.Builtin.HTTP_HEADERS, new CompositeExtractorImpl(tracer,
+                CompositeExtractorImpl.Scheme.TRACE_PARENT, CompositeExtractorImpl.Scheme.B3_SINGLE,
+                CompositeExtractorImpl.Scheme.B3_MULTI, CompositeExtractorImpl.Scheme.NATIVE));
+        Map<String,String> map = new HashMap<>();
+        map.put("x-trace-id", "42");
+        map.put("x-baggage-user", "alice");
+        map.put("X-B3-TraceId", "0000000000000009");
+        map.put("X-B3-SpanId", "0000000000000008");
+        map.put("X-B3-Sampled", "1");
+        map.put("b3", "00000000000000050000000000000006-0000000000000007-0");
+        map.put("traceparent", "00-000000000000002a0000000000000007-0000000000000003-01");
+
+        ExtractedContext result = extractHeaders(tracer, map);
+        assertEquals(42L, result.traceIdHigh());
+        assertEquals(3L, result.spanId());
+        assertEquals(null, result.getStateItem("x-trace-id"));
+        assertEquals("alice", result.getBaggageItem("user"));
+
+        map.put("traceparent", "malformed");
+        result = extractHeaders(tracer, map);
+        assertEquals(5L, result.traceIdHigh());
+        assertEquals(6L, result.traceIdLow());
+        assertEquals(7L, result.spanId());
+        assertEquals(0, result.traceFlags());
+
+        map.remove("b3");
+        result = extractHeaders(tracer, map);
+        assertEquals(0L, result.traceIdHigh());
+        assertEquals(9L, result.traceIdLow());
+        assertEquals(8L, result.spanId());
+        assertEquals(TraceIdentifiers.FLAG_SAMPLED, result.traceFlags());
+
+        map.remove("X-B3-SpanId");
+        result = extractHeaders(tracer, map);
+        assertEquals(false, result.hasTraceIdentifiers());
+        assertEquals("42", result.getStateItem("x-trace-id"));
+
+        map.remove("x-trace-id");
+        assertEquals(true, extractHeaders(tracer, map).isEmpty());
+    }
+
+    @Test
+    public void testCompositeExtractorNativeFirst() {
+        AbstractTracer tracer = new KeyedTracerImpl();
+        tracer.register(Format.Builtin.HTTP_HEADERS, new CompositeExtractorImpl(tracer));
+        Map<String,String> map = new HashMap<>();
+        map.put("x-trace-id", "42");
+        map.put("b3", "0000000000000009-0000000000000008");
+
+        ExtractedContext result = extractHeaders(tracer, map);
+        assertEquals("42", result.getStateItem("x-trace-id"));
+        assertEquals(false, result.hasTraceIdentifiers());
+
+        map.remove("x-trace-id");
+        result = extractHeaders(tracer, map);
+        assertEquals(9L, result.traceIdLow());
+    }
+
+    private static ExtractedContext extractHeaders(AbstractTracer tracer, Map<String,String> map) {
+        return (ExtractedContext) tracer.extract(Format.Builtin.HTTP_HEADERS, new TextMapExtractAdapter(map));
+    }
+}
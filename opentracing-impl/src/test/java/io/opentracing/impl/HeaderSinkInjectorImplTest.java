@@ -0,0 +1,57 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.HeaderBlockWriter;
+import io.opentracing.propagation.TextMapExtractAdapter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public final class HeaderSinkInjectorImplTest {
+
+    @Test
+    public void testHeaderBlockInject() {
+        AbstractTracer tracer = new TraceParentTracerImpl();
+        Span span = tracer.buildSpan("op").start().setBaggageItem("user", "alice");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(128);
+        tracer.inject(span.context(), Format.Builtin.HEADER_BLOCK, HeaderBlockWriter.http1(buffer));
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        assertEquals("traceparent: 00-000000000000002a0000000000000007-0000000000000003-01\r\n"
+                + "baggage: user=alice\r\n", new String(bytes, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testHeaderBlockInjectExtractedContext() {
+        AbstractTracer tracer = new KeyedTracerImpl();
+        Map<String,String> map = new HashMap<>();
+        map.put("x-trace-id", "42");
+        map.put("baggage", "user=alice");
+        SpanContext context = tracer.extract(Format.Builtin.HTTP_HEADERS, new TextMapExtractAdapter(map));
+        StringBuilder headers = new StringBuilder();
+        tracer.inject(context, Format.Builtin.HEADER_BLOCK, HeaderBlockWriter.http1(headers));
+
+        assertEquals("x-trace-id: 42\r\nbaggage: user=alice\r\n", headers.toString());
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+final class IdentifiedSpanImpl extends AbstractSpan implements TraceIdentifiers {
+
+    IdentifiedSpanImpl(String operationName) {
+        super(operationName);
+    }
+
+    @Override
+    public boolean hasTraceIdentifiers() {
+        return true;
+    }
+
+    @Override
+    public long traceIdHigh() {
+        return 42;
+    }
+
+    @Override
+    public long traceIdLow() {
+        return 7;
+    }
+
+    @Override
+    public long spanId() {
+        return 3;
+    }
+
+    @Override
+    public byte traceFlags() {
+        return FLAG_SAMPLED;
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public final class KeyMatcherTest {
+
+    private final KeyMatcher matcher = KeyMatcher.compile(
+            Arrays.asList("x-trace-id", "x-span-id"), Arrays.asList("x-baggage-", "x-bag-"));
+
+    @Test
+    public void testTraceStateKeysIgnoreAsciiCase() {
+        assertEquals("x-trace-id", matcher.match("x-trace-id").key());
+        assertEquals("x-span-id", matcher.match("X-Span-ID").key());
+        assertFalse(matcher.match("X-TRACE-ID").isBaggagePrefix());
+        assertNull(matcher.match("x-trace-id-2"));
+        assertNull(matcher.match("x-trace"));
+    }
+
+    @Test
+    public void testBaggagePrefixes() {
+        assertTrue(matcher.match("X-Baggage-user").isBaggagePrefix());
+        assertEquals("x-baggage-", matcher.match("x-baggage-user").key());
+        assertEquals("x-bag-", matcher.match("x-bag-user").key());
+        assertNull("a bare prefix carries no baggage key", matcher.match("x-baggage-"));
+    }
+
+    @Test
+    public void testUnrelatedKeys() {
+        assertNull(matcher.match("Accept"));
+        assertNull(matcher.match("x-forwarded-for"));
+        assertNull(matcher.match(""));
+        assertNull(matcher.match("étag"));
+    }
+
+    @Test
+    public void testEmpty() {
+        KeyMatcher empty = KeyMatcher.compile(Collections.<String>emptySet(), Collections.<String>emptyList());
+        assertFalse(empty.hasTraceStateKeys());
+        assertNull(empty.match("x-trace-id"));
+    }
+}
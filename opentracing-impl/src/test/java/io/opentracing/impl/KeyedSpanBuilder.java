@@ -0,0 +1,36 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+final class KeyedSpanBuilder extends AbstractSpanBuilder {
+
+    KeyedSpanBuilder(String operationName) {
+        super(operationName);
+    }
+
+    @Override
+    protected AbstractSpan createSpan() {
+        return new TestSpanImpl(this.operationName);
+    }
+
+    @Override
+    boolean isTraceState(String key, Object value) {
+        return "x-trace-id".equalsIgnoreCase(key);
+    }
+
+    @Override
+    AbstractSpanBuilder withStateItem(String key, Object value) {
+        throw new AssertionError("trace state is read from the parent reference");
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.SpanContext;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+final class KeyedTracerImpl extends AbstractTracer {
+
+    int traceStateCalls;
+    private final List<String> baggageKeyPrefixes;
+
+    KeyedTracerImpl() {
+        this(Collections.singletonList("x-baggage-"));
+    }
+
+    KeyedTracerImpl(List<String> baggageKeyPrefixes) {
+        this.baggageKeyPrefixes = baggageKeyPrefixes;
+    }
+
+    @Override
+    AbstractSpanBuilder createSpanBuilder(String operationName) {
+        return new KeyedSpanBuilder(operationName);
+    }
+
+    @Override
+    Map<String, Object> getTraceState(SpanContext spanContext) {
+        traceStateCalls++;
+        return Collections.singletonMap("x-trace-id", 42);
+    }
+
+    @Override
+    Collection<String> traceStateKeys() {
+        return Collections.singleton("x-trace-id");
+    }
+
+    @Override
+    List<String> baggageKeyPrefixes() {
+        return baggageKeyPrefixes;
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.propagation.Extractor;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.Injector;
+import io.opentracing.propagation.TextMap;
+import io.opentracing.propagation.TextMapExtractAdapter;
+import io.opentracing.propagation.TextMapInjectAdapter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public final class PropagationRegistryTest {
+
+    @Test
+    public void testRegisterCustomFormats() {
+        AbstractTracer tracer = new KeyedTracerImpl();
+        Format<TextMap> first = new Format<TextMap>() {};
+        Format<TextMap> second = new Format<TextMap>() {};
+        Injector<TextMap> injector = (context, carrier) -> carrier.put("custom", "1");
+        Extractor<TextMap> extractor = (carrier) -> ExtractedContext.INVALID;
+        tracer.register(injector, extractor, first, second, Format.Builtin.TEXT_MAP);
+
+        for (Format<TextMap> format : Arrays.asList(first, second, Format.Builtin.TEXT_MAP)) {
+            Map<String,String> map = new HashMap<>();
+            tracer.inject(tracer.buildSpan("op").start().context(), format, new TextMapInjectAdapter(map));
+            assertEquals(Collections.singletonMap("custom", "1"), map);
+            assertEquals(ExtractedContext.INVALID, tracer.extract(format, new TextMapExtractAdapter(map)));
+        }
+        assertEquals(extractor, tracer.register(second, new TextMapExtractorImpl(tracer)));
+        assertEquals(injector, tracer.register(second, (Injector<TextMap>) null));
+        assertEquals("42", ((ExtractedContext) tracer.extract(second, new TextMapExtractAdapter(
+                Collections.singletonMap("x-trace-id", "42")))).getStateItem("x-trace-id"));
+    }
+
+    @Test(expected = AssertionError.class)
+    public void testInjectOfUnregisteredFormat() {
+        AbstractTracer tracer = new KeyedTracerImpl();
+        Format<TextMap> format = new Format<TextMap>() {};
+        tracer.register(format, (carrier) -> ExtractedContext.INVALID);
+        tracer.inject(tracer.buildSpan("op").start().context(), format, new TextMapInjectAdapter(new HashMap<>()));
+    }
+
+    @Test(expected = AssertionError.class)
+    public void testStrictExtractionOfUnknownFormat() {
+        new KeyedTracerImpl().extract(new Format<TextMap>() {}, new TextMapExtractAdapter(new HashMap<>()));
+    }
+}
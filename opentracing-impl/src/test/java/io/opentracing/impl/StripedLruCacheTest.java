@@ -0,0 +1,37 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public final class StripedLruCacheTest {
+
+    @Test
+    public void testStripedLruCacheEvictsLeastRecentlyUsed() {
+        StripedLruCache<String, String> cache = new StripedLruCache<>(2, 1);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals("1", cache.get("a"));
+        cache.put("c", "3");
+
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get("a"));
+        assertEquals(null, cache.get("b"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(3, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+}
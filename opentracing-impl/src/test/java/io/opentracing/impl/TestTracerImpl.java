@@ -0,0 +1,47 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.SpanContext;
+import java.util.HashMap;
+import java.util.Map;
+
+final class TestTracerImpl extends AbstractTracer {
+
+    static final String OPERATION_NAME = "operation-name";
+
+    @Override
+    public AbstractSpanBuilder createSpanBuilder(String operationName) {
+        return new AbstractSpanBuilder(operationName) {
+            @Override
+            protected AbstractSpan createSpan() {
+                return new TestSpanImpl(this.operationName);
+            }
+            @Override
+            boolean isTraceState(String key, Object value) {
+                return false;
+            }
+
+            @Override
+            AbstractSpanBuilder withStateItem(String key, Object value) {
+                throw new AssertionError("no trace state is possible");
+            }
+        };
+    }
+
+    @Override
+    Map<String, Object> getTraceState(SpanContext spanContext) {
+        return new HashMap<>(((AbstractSpan)spanContext).getBaggage());
+    }
+}
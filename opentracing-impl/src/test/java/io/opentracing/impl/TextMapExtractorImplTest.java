@@ -0,0 +1,79 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.Span;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapExtractAdapter;
+import io.opentracing.propagation.TextMapInjectAdapter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public final class TextMapExtractorImplTest {
+
+    @Test
+    public void testExtractWithDeclaredKeysSkipsUnrelatedEntries() {
+        Map<String,String> map = new HashMap<>();
+        map.put("X-Trace-Id", "42");
+        map.put("X-Baggage-user", "alice");
+        map.put("Accept", "text/html");
+        ExtractedContext result = (ExtractedContext) new KeyedTracerImpl().extract(
+                Format.Builtin.TEXT_MAP, new TextMapExtractAdapter(map));
+
+        assertEquals("42", result.getStateItem("x-trace-id"));
+        Map<String,Object> state = new HashMap<>();
+        result.stateItems().forEach((entry) -> state.put(entry.getKey(), entry.getValue()));
+        assertEquals(Collections.singletonMap("x-trace-id", "42"), state);
+        Map<String,String> baggage = new HashMap<>();
+        result.baggageItems().forEach((entry) -> baggage.put(entry.getKey(), entry.getValue()));
+        assertEquals(Collections.singletonMap("user", "alice"), baggage);
+        assertEquals("alice", result.getBaggageItem("user"));
+    }
+
+    @Test
+    public void testUnrelatedKeysSkippedByDefault() {
+        AbstractTracer tracer = new TestTracerImpl();
+        Span span = tracer.buildSpan("op").start().setBaggageItem("user", "alice");
+        Map<String,String> map = new HashMap<>();
+        tracer.inject(span.context(), Format.Builtin.TEXT_MAP, new TextMapInjectAdapter(map));
+        assertEquals("alice", map.get(AbstractTracer.DEFAULT_BAGGAGE_KEY_PREFIX + "user"));
+        map.put("User-Agent", "curl");
+
+        ExtractedContext result = (ExtractedContext) tracer.extract(
+                Format.Builtin.TEXT_MAP, new TextMapExtractAdapter(map));
+        assertEquals("alice", result.getBaggageItem("user"));
+        assertEquals(null, result.getBaggageItem("User-Agent"));
+    }
+
+    @Test
+    public void testRoundTripWithoutBaggagePrefixes() {
+        AbstractTracer tracer = new KeyedTracerImpl(Collections.emptyList());
+        Span span = tracer.buildSpan("op").start().setBaggageItem("user", "alice");
+        Map<String,String> map = new HashMap<>();
+        tracer.inject(span.context(), Format.Builtin.TEXT_MAP, new TextMapInjectAdapter(map));
+        assertEquals("alice", map.get("user"));
+
+        ExtractedContext result = (ExtractedContext) tracer.extract(
+                Format.Builtin.TEXT_MAP, new TextMapExtractAdapter(map));
+        assertEquals("42", result.getStateItem("x-trace-id"));
+        assertEquals("alice", result.getBaggageItem("user"));
+
+        result = (ExtractedContext) tracer.extract(Format.Builtin.HTTP_HEADERS, new TextMapExtractAdapter(map));
+        assertEquals("alice", result.getBaggageItem("user"));
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.Span;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMap;
+import io.opentracing.propagation.TextMapInjectAdapter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public final class TextMapInjectorImplTest {
+
+    @Test
+    public void testInjectWithDeclaredKeysPrefixesBaggage() {
+        AbstractTracer tracer = new KeyedTracerImpl();
+        Span span = tracer.buildSpan("op").start().setBaggageItem("user", "alice");
+        Map<String,String> map = new HashMap<>();
+        tracer.inject(span.context(), Format.Builtin.TEXT_MAP, new TextMapInjectAdapter(map));
+
+        assertEquals(2, map.size());
+        assertEquals("42", map.get("x-trace-id"));
+        assertEquals("alice", map.get("x-baggage-user"));
+    }
+
+    @Test
+    public void testInjectAllEncodesOnce() {
+        KeyedTracerImpl tracer = new KeyedTracerImpl();
+        Span span = tracer.buildSpan("op").start().setBaggageItem("user", "alice");
+        List<Map<String,String>> maps = Arrays.asList(new HashMap<>(), new HashMap<>(), new HashMap<>());
+        List<TextMap> carriers = new ArrayList<>();
+        maps.forEach((map) -> carriers.add(new TextMapInjectAdapter(map)));
+        tracer.injectAll(span.context(), Format.Builtin.TEXT_MAP, carriers);
+
+        assertEquals(1, tracer.traceStateCalls);
+        for (Map<String,String> map : maps) {
+            assertEquals("42", map.get("x-trace-id"));
+            assertEquals("alice", map.get("x-baggage-user"));
+        }
+
+        span.setBaggageItem("user", "bob");
+        Map<String,String> map = new HashMap<>();
+        tracer.inject(span.context(), Format.Builtin.TEXT_MAP, new TextMapInjectAdapter(map));
+        assertEquals(2, tracer.traceStateCalls);
+        assertEquals("bob", map.get("x-baggage-user"));
+
+        tracer.inject(span.context(), Format.Builtin.HTTP_HEADERS, new TextMapInjectAdapter(map));
+        assertEquals(3, tracer.traceStateCalls);
+        assertEquals("user=bob", map.get("baggage"));
+    }
+
+    @Test
+    public void testCachedEncodingFollowsBaggageFlag() {
+        KeyedTracerImpl tracer = new KeyedTracerImpl();
+        TextMapInjectorImpl injector = new TextMapInjectorImpl(tracer);
+        Span span = tracer.buildSpan("op").start().setBaggageItem("user", "alice");
+        Map<String,String> map = new HashMap<>();
+        injector.inject(span.context(), new TextMapInjectAdapter(map));
+        assertEquals("alice", map.get("x-baggage-user"));
+
+        injector.setBaggageEnabled(false);
+        map.clear();
+        injector.inject(span.context(), new TextMapInjectAdapter(map));
+        assertEquals(Collections.singletonMap("x-trace-id", "42"), map);
+        assertEquals(2, tracer.traceStateCalls);
+
+        injector.setBaggageEnabled(true);
+        map.clear();
+        injector.inject(span.context(), new TextMapInjectAdapter(map));
+        assertEquals("alice", map.get("x-baggage-user"));
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.impl;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMap;
+import io.opentracing.propagation.TextMapExtractAdapter;
+import io.opentracing.propagation.TextMapInjectAdapter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public final class TraceParentExtractorImplTest {
+
+    @Test
+    public void testTraceParentRoundTrip() {
+        AbstractTracer tracer = new TraceParentTracerImpl();
+        Span span = tracer.buildSpan("op").start().setBaggageItem("user", "alice");
+        Map<String,String> map = new HashMap<>();
+        tracer.inject(span.context(), Format.Builtin.HTTP_HEADERS, new TextMapInjectAdapter(map));
+
+        assertEquals(2, map.size());
+        assertEquals("00-000000000000002a0000000000000007-0000000000000003-01", map.get("traceparent"));
+        assertEquals("user=alice", map.get("baggage"));
+
+        map.put("TraceParent", map.remove("traceparent"));
+        ExtractedContext result = (ExtractedContext) tracer.extract(
+                Format.Builtin.HTTP_HEADERS, new TextMapExtractAdapter(map));
+        assertEquals(true, result.hasTraceIdentifiers());
+        assertEquals(42L, result.traceIdHigh());
+        assertEquals(7L, result.traceIdLow());
+        assertEquals(3L, result.spanId());
+        assertEquals(TraceIdentifiers.FLAG_SAMPLED, result.traceFlags());
+        assertEquals("alice", result.getBaggageItem("user"));
+    }
+
+    @Test
+    public void testTraceParentMalformedIsIgnored() {
+        String[] values = {
+            "00-000000000000002a0000000000000007-0000000000000003",
+            "00-000000000000002a0000000000000007-0000000000000003-01-",
+            "ff-000000000000002a0000000000000007-0000000000000003-01",
+            "00-00000000000000000000000000000000-0000000000000003-01",
+            "00-000000000000002a0000000000000007-0000000000000000-01",
+            "00-000000000000002a000000000000000g-0000000000000003-01",
+            "00_000000000000002a0000000000000007-0000000000000003-01",
+            "00-000000000000002A0000000000000007-0000000000000003-01",
+            "00-000000000000002a0000000000000007-000000000000000F-01",
+        };
+        for (String value : values) {
+            ExtractedContext result = (ExtractedContext) new TraceParentTracerImpl().extract(
+                    Format.Builtin.HTTP_HEADERS, new TextMapExtractAdapter(Collections.singletonMap("traceparent", value)));
+            assertEquals(value, false, result.hasTraceIdentifiers());
+        }
+        ExtractedContext future = new ExtractedContext();
+        assertEquals(true, TraceParentExtractorImpl.decode(
+                "01-000000000000002a0000000000000007-0000000000000003-01-extra", future));
+    }
+
+    @Test
+    public void testExtractAll() {
+        AbstractTracer tracer = new KeyedTracerImpl();
+        Map<String,String> first = new HashMap<>();
+        first.put("traceparent", "00-000000000000002a0000000000000007-0000000000000003-01");
+        first.put("baggage", "user=alice");
+        Map<String,String> same = new HashMap<>(first);
+        same.put("Accept", "text/html");
+        Map<String,String> keyed = Collections.singletonMap("x-trace-id", "42");
+        List<TextMap> carriers = Arrays.asList(new TextMapExtractAdapter(first), new TextMapExtractAdapter(same),
+                new TextMapExtractAdapter(keyed));
+
+        List<SpanContext> contexts = tracer.extractAll(Format.Builtin.HTTP_HEADERS, carriers);
+        assertEquals(3, contexts.size());
+        assertEquals(true, contexts.get(0) == contexts.get(1));
+        assertEquals(3L, ((ExtractedContext) contexts.get(0)).spanId());
+        assertEquals("alice", ((ExtractedContext) contexts.get(1)).getBaggageItem("user"));
+        assertEquals("42", ((ExtractedContext) contexts.get(2)).getStateItem("x-trace-id"));
+
+        contexts = tracer.extractAll(Format.Builtin.TEXT_MAP, carriers);
+        assertEquals(3, contexts.size());
+        assertEquals("42", ((ExtractedContext) contexts.get(2)).getStateItem("x-trace-id"));
+    }
+}
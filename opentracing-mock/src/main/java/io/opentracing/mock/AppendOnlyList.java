@@ -0,0 +1,116 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock-free, append-only list. Elements are stored in chunks of doubling size, allocated on demand, so appending
+ * never copies and small lists stay small. {@link #snapshot()} returns a read-only view of the elements appended so
+ * far in constant time.
+ */
+final class AppendOnlyList<T> {
+
+    private static final int FIRST_CHUNK_BITS = 3;
+    private static final int FIRST_CHUNK_SIZE = 1 << FIRST_CHUNK_BITS;
+    private static final int MAX_CHUNKS = 32 - FIRST_CHUNK_BITS;
+    private static final int MAX_YIELDS = 1000;
+    private static final long MAX_WAIT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final AtomicReferenceArray<AtomicReferenceArray<T>> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+    private final AtomicInteger size = new AtomicInteger();
+
+    void add(T element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        int index = size.getAndIncrement();
+        if (index < 0) {
+            size.decrementAndGet();
+            throw new IllegalStateException("AppendOnlyList is full");
+        }
+        int position = index + FIRST_CHUNK_SIZE;
+        int chunkIndex = 31 - Integer.numberOfLeadingZeros(position) - FIRST_CHUNK_BITS;
+        AtomicReferenceArray<T> chunk = chunks.get(chunkIndex);
+        if (chunk == null) {
+            chunks.compareAndSet(chunkIndex, null, new AtomicReferenceArray<T>(Integer.highestOneBit(position)));
+            chunk = chunks.get(chunkIndex);
+        }
+        chunk.set(position - Integer.highestOneBit(position), element);
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * @return the element, waiting for a concurrent add() that reserved the index but has not stored it yet
+     * @throws IllegalStateException if the element is not stored within 10 seconds, e.g. as its add() failed
+     */
+    T get(int index) {
+        int position = index + FIRST_CHUNK_SIZE;
+        int chunkIndex = 31 - Integer.numberOfLeadingZeros(position) - FIRST_CHUNK_BITS;
+        long deadline = 0;
+        for (int attempt = 0; ; attempt++) {
+            AtomicReferenceArray<T> chunk = chunks.get(chunkIndex);
+            T element = chunk == null ? null : chunk.get(position - Integer.highestOneBit(position));
+            if (element != null) {
+                return element;
+            }
+            if (attempt < MAX_YIELDS) {
+                Thread.yield();
+            } else if (deadline == 0) {
+                deadline = System.nanoTime() + MAX_WAIT_NANOS;
+            } else if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("Element " + index + " was reserved but never stored");
+            } else {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+    }
+
+    /** @return a read-only view of the elements appended before this call */
+    List<T> snapshot() {
+        return new Snapshot<>(this, size());
+    }
+
+    private static final class Snapshot<T> extends AbstractList<T> implements RandomAccess {
+        private final AppendOnlyList<T> list;
+        private final int size;
+
+        Snapshot(AppendOnlyList<T> list, int size) {
+            this.list = list;
+            this.size = size;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return list.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
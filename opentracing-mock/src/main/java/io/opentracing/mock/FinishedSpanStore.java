@@ -0,0 +1,93 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The finished spans a MockTracer retains. Every query returns a read-only snapshot, in the order the spans finished.
+ *
+ * @see IndexedSpanStore
+ * @see RingBufferSpanStore
+ */
+abstract class FinishedSpanStore {
+
+    abstract void add(MockSpan span);
+
+    /**
+     * @return the number of spans added to this store, including evicted ones
+     */
+    abstract long appended();
+
+    abstract List<MockSpan> all();
+
+    /**
+     * Adds the retained spans appended at or after the sequence, that is, after the first sequence spans appended.
+     *
+     * @return the sequence to continue from
+     */
+    abstract long collectSince(long sequence, List<MockSpan> into);
+
+    /**
+     * @return an empty store retaining spans as this one does
+     */
+    abstract FinishedSpanStore emptyCopy();
+
+    /**
+     * @return the number of spans evicted to stay within the retention bounds
+     */
+    long evicted() {
+        return 0;
+    }
+
+    List<MockSpan> byTraceId(final long traceId) {
+        return matching(new SpanMatcher() {
+            @Override
+            public boolean matches(MockSpan span) {
+                return span.context().traceId() == traceId;
+            }
+        });
+    }
+
+    List<MockSpan> byOperationName(final String operationName) {
+        return matching(new SpanMatcher() {
+            @Override
+            public boolean matches(MockSpan span) {
+                return operationName == null ? span.operationName() == null
+                        : operationName.equals(span.operationName());
+            }
+        });
+    }
+
+    List<MockSpan> byParentId(final long parentId) {
+        return matching(new SpanMatcher() {
+            @Override
+            public boolean matches(MockSpan span) {
+                return span.parentId() == parentId;
+            }
+        });
+    }
+
+    List<MockSpan> matching(SpanMatcher matcher) {
+        List<MockSpan> matching = new ArrayList<>();
+        for (MockSpan span : all()) {
+            if (matcher.matches(span)) {
+                matching.add(span);
+            }
+        }
+        return Collections.unmodifiableList(matching);
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Retains all finished spans of a MockTracer, in an {@link AppendOnlyList} and indexed by trace id, operation name and
+ * parent id. Appending is lock-free, and every query returns a read-only snapshot view without copying the store.
+ */
+final class IndexedSpanStore extends FinishedSpanStore {
+
+    private static final Object NULL_NAME = new Object();
+
+    private final AppendOnlyList<MockSpan> spans = new AppendOnlyList<>();
+    private final ConcurrentMap<Long, AppendOnlyList<MockSpan>> byTraceId = new ConcurrentHashMap<>();
+    /** Keyed by operation name, or by {@link #NULL_NAME} for spans without one */
+    private final ConcurrentMap<Object, AppendOnlyList<MockSpan>> byOperationName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, AppendOnlyList<MockSpan>> byParentId = new ConcurrentHashMap<>();
+
+    @Override
+    void add(MockSpan span) {
+        spans.add(span);
+        index(byTraceId, span.context().traceId(), span);
+        index(byOperationName, nameKey(span.operationName()), span);
+        index(byParentId, span.parentId(), span);
+    }
+
+    @Override
+    long appended() {
+        return spans.size();
+    }
+
+    @Override
+    List<MockSpan> all() {
+        return spans.snapshot();
+    }
+
+    @Override
+    long collectSince(long sequence, List<MockSpan> into) {
+        List<MockSpan> snapshot = spans.snapshot();
+        for (int i = (int) sequence; i < snapshot.size(); i++) {
+            into.add(snapshot.get(i));
+        }
+        return snapshot.size();
+    }
+
+    @Override
+    FinishedSpanStore emptyCopy() {
+        return new IndexedSpanStore();
+    }
+
+    @Override
+    List<MockSpan> byTraceId(long traceId) {
+        return snapshot(byTraceId.get(traceId));
+    }
+
+    @Override
+    List<MockSpan> byOperationName(String operationName) {
+        return snapshot(byOperationName.get(nameKey(operationName)));
+    }
+
+    @Override
+    List<MockSpan> byParentId(long parentId) {
+        return snapshot(byParentId.get(parentId));
+    }
+
+    private static Object nameKey(String operationName) {
+        return operationName == null ? NULL_NAME : operationName;
+    }
+
+    private static <K> void index(ConcurrentMap<K, AppendOnlyList<MockSpan>> index, K key, MockSpan span) {
+        AppendOnlyList<MockSpan> list = index.get(key);
+        if (list == null) {
+            AppendOnlyList<MockSpan> created = new AppendOnlyList<>();
+            list = index.putIfAbsent(key, created);
+            if (list == null) {
+                list = created;
+            }
+        }
+        list.add(span);
+    }
+
+    private static List<MockSpan> snapshot(AppendOnlyList<MockSpan> list) {
+        return list == null ? Collections.<MockSpan>emptyList() : list.snapshot();
+    }
+}
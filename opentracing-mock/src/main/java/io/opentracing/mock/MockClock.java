@@ -0,0 +1,96 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The source of the start, finish and log timestamps of the spans of a MockTracer.
+ *
+ * The {@link #system()} clock reads the wall clock. A {@link Virtual} clock only moves when advanced, or by a fixed
+ * step on every reading, so timing-dependent tests run instantly and deterministically instead of sleeping.
+ *
+ * @see MockTracer#setClock(MockClock)
+ */
+public abstract class MockClock {
+
+    private static final MockClock SYSTEM = new MockClock() {
+        @Override
+        public long nowMicros() {
+            return System.currentTimeMillis() * 1000;
+        }
+    };
+
+    /** @return the wall clock, with millisecond precision; the default */
+    public static MockClock system() {
+        return SYSTEM;
+    }
+
+    /**
+     * @return the current time, in microseconds since the epoch
+     */
+    public abstract long nowMicros();
+
+    /**
+     * A virtual clock, advanced manually and, optionally, by a fixed step after every reading. Thread-safe.
+     */
+    public static final class Virtual extends MockClock {
+        private final AtomicLong micros;
+        private final long stepMicros;
+
+        /**
+         * @param startMicros the first time read
+         * @param stepMicros how far the clock advances after every reading; 0 for a clock only advanced manually
+         */
+        public Virtual(long startMicros, long stepMicros) {
+            if (stepMicros < 0) {
+                throw new IllegalArgumentException("stepMicros must not be negative: " + stepMicros);
+            }
+            this.micros = new AtomicLong(startMicros);
+            this.stepMicros = stepMicros;
+        }
+
+        /**
+         * A virtual clock only advanced manually.
+         */
+        public Virtual(long startMicros) {
+            this(startMicros, 0);
+        }
+
+        @Override
+        public long nowMicros() {
+            return stepMicros == 0 ? micros.get() : micros.getAndAdd(stepMicros);
+        }
+
+        /**
+         * Moves the clock forward by the duration.
+         *
+         * @return the new time, in microseconds
+         */
+        public long advance(long duration, TimeUnit unit) {
+            if (duration < 0) {
+                throw new IllegalArgumentException("duration must not be negative: " + duration);
+            }
+            return micros.addAndGet(unit.toMicros(duration));
+        }
+
+        /**
+         * Sets the clock to the time, in microseconds since the epoch.
+         */
+        public void setMicros(long micros) {
+            this.micros.set(micros);
+        }
+    }
+}
@@ -14,30 +14,40 @@
 package io.opentracing.mock;
 
 import java.util.*;
-import java.util.concurrent.atomic.AtomicLong;
 
 import io.opentracing.Span;
 import io.opentracing.SpanContext;
+import io.opentracing.ValueSupplier;
+import io.opentracing.internal.IdGenerator;
 
 /**
  * MockSpans are created via MockTracer.buildSpan(...), but they are also returned via calls to
  * MockTracer.finishedSpans(). They provide accessors to all Span state.
  *
+ * By default, a MockSpan may be used from several threads and its mutators take its monitor. A span started while
+ * {@link MockTracer#setSingleWriterSpans(boolean)} is enabled is instead confined to the thread that started it: it
+ * takes no locks, and asserts that only that thread modifies it.
+ *
  * @see MockTracer#finishedSpans()
  */
 public final class MockSpan implements Span {
-    // A simple-as-possible (consecutive for repeatability) id generator.
-    private static AtomicLong nextId = new AtomicLong(0);
-
     private final MockTracer mockTracer;
-    private MockContext context;
+    private volatile MockContext context;
     private final long parentId; // 0 if there's no parent.
+    private final List<Reference> references;
     private final long startMicros;
-    private boolean finished;
+    private final MockClock clock;
+    /** The only thread allowed to modify a single-writer span; null if the span synchronizes instead */
+    private final Thread owner;
+    private volatile boolean finished;
     private long finishMicros;
     private final Map<String, Object> tags;
     private final List<LogEntry> logEntries = new ArrayList<>();
     private String operationName;
+    /** Read-only views, set once finished as the tags and log entries cannot change anymore */
+    private Map<String, Object> tagsView;
+    private volatile boolean hasDeferredTags;
+    private List<LogEntry> logEntriesView;
 
     private final List<RuntimeException> errors = new ArrayList<>();
 
@@ -47,13 +57,24 @@ public final class MockSpan implements Span {
 
     @Override
     public Span setOperationName(String operationName) {
+        if (owner != null) {
+            assert ownerCheck();
+            setOperationNameInternal(operationName);
+        } else {
+            synchronized (this) {
+                setOperationNameInternal(operationName);
+            }
+        }
+        return this;
+    }
+
+    private void setOperationNameInternal(String operationName) {
         finishedCheck("Setting operationName {%s} on already finished span", operationName);
         this.operationName = operationName;
-        return this;
     }
 
     /**
-     * TODO: Support multiple parents in this API.
+     * For spans with several parents, see {@link #references()}.
      *
      * @return the spanId of the Span's parent context, or 0 if no such parent exists.
      *
@@ -62,6 +83,14 @@ public final class MockSpan implements Span {
     public long parentId() {
         return parentId;
     }
+
+    /**
+     * @return all references the Span was started with, in the order they were added; {@link #parentId()} is the
+     * span id of the first CHILD_OF or FOLLOWS_FROM reference.
+     */
+    public List<Reference> references() {
+        return references;
+    }
     public long startMicros() {
         return startMicros;
     }
@@ -69,32 +98,98 @@ public final class MockSpan implements Span {
      * @return the finish time of the Span; only valid after a call to finish().
      */
     public long finishMicros() {
-        assert finishMicros > 0 : "must call finish() before finishMicros()";
+        assert finished : "must call finish() before finishMicros()";
         return finishMicros;
     }
 
     /**
-     * @return a copy of all tags set on this Span.
+     * @return a copy of all tags set on this Span, with deferred values evaluated on first read. A tag whose supplier
+     * throws is dropped and the exception is recorded in {@link #generatedErrors()}. Only the owner of a single-writer
+     * span may call this before it finishes.
+     * @see #tagsView()
      */
     public Map<String, Object> tags() {
+        if (finished) {
+            resolveFinishedTags();
+            return new HashMap<>(tagsView);
+        }
+        if (owner != null) {
+            assert ownerCheck();
+            return copyTags();
+        }
+        synchronized (this) {
+            return copyTags();
+        }
+    }
+
+    /**
+     * @return the tags like {@link #tags()}, but read-only: a view without copying once the Span is finished, and a
+     * copy until then
+     */
+    public Map<String, Object> tagsView() {
+        if (finished) {
+            resolveFinishedTags();
+            return tagsView;
+        }
+        return Collections.unmodifiableMap(tags());
+    }
+
+    private void resolveFinishedTags() {
+        if (hasDeferredTags) {
+            synchronized (this) {
+                resolveDeferredTags();
+            }
+        }
+    }
+
+    /** @return the read-only tags of this finished Span, with deferred values left unevaluated */
+    Map<String, Object> unresolvedTags() {
+        assert finished;
+        return tagsView;
+    }
+
+    private Map<String, Object> copyTags() {
+        resolveDeferredTags();
         return new HashMap<>(this.tags);
     }
+
     /**
-     * @return a copy of all log entries added to this Span.
+     * @return a copy of all log entries added to this Span. Only the owner of a single-writer span may call this
+     * before it finishes.
+     * @see #logEntriesView()
      */
     public List<LogEntry> logEntries() {
-        return new ArrayList<>(this.logEntries);
+        if (finished) {
+            return new ArrayList<>(logEntriesView);
+        }
+        if (owner != null) {
+            assert ownerCheck();
+            return new ArrayList<>(this.logEntries);
+        }
+        synchronized (this) {
+            return new ArrayList<>(this.logEntries);
+        }
+    }
+
+    /**
+     * @return the log entries like {@link #logEntries()}, but read-only: a view without copying once the Span is
+     * finished, and a copy until then
+     */
+    public List<LogEntry> logEntriesView() {
+        return finished ? logEntriesView : Collections.unmodifiableList(logEntries());
     }
 
     /**
      * @return a copy of exceptions thrown by this class (e.g. adding a tag after span is finished).
      */
     public List<RuntimeException> generatedErrors() {
-        return new ArrayList<>(errors);
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
     }
 
     @Override
-    public synchronized MockContext context() {
+    public MockContext context() {
         return this.context;
     }
 
@@ -104,11 +199,24 @@ public final class MockSpan implements Span {
     }
 
     @Override
-    public synchronized void finish(long finishMicros) {
+    public void finish(long finishMicros) {
+        if (owner != null) {
+            assert ownerCheck();
+            finishInternal(finishMicros);
+        } else {
+            synchronized (this) {
+                finishInternal(finishMicros);
+            }
+        }
+    }
+
+    private void finishInternal(long finishMicros) {
         finishedCheck("Finishing already finished span");
         this.finishMicros = finishMicros;
-        this.mockTracer.appendFinishedSpan(this);
+        this.tagsView = Collections.unmodifiableMap(tags);
+        this.logEntriesView = Collections.unmodifiableList(logEntries);
         this.finished = true;
+        this.mockTracer.appendFinishedSpan(this);
     }
 
     @Override
@@ -116,6 +224,14 @@ public final class MockSpan implements Span {
         this.finish();
     }
 
+    /**
+     * @return true until the Span is finished; a finished MockSpan rejects further data.
+     */
+    @Override
+    public boolean isRecording() {
+        return !finished;
+    }
+
     @Override
     public Span setTag(String key, String value) {
         return setObjectTag(key, value);
@@ -131,10 +247,29 @@ public final class MockSpan implements Span {
         return setObjectTag(key, value);
     }
 
-    private synchronized Span setObjectTag(String key, Object value) {
+    @Override
+    public Span setTag(String key, ValueSupplier<?> value) {
+        return setObjectTag(key, value);
+    }
+
+    private Span setObjectTag(String key, Object value) {
+        if (owner != null) {
+            assert ownerCheck();
+            putTag(key, value);
+        } else {
+            synchronized (this) {
+                putTag(key, value);
+            }
+        }
+        return this;
+    }
+
+    private void putTag(String key, Object value) {
         finishedCheck("Adding tag {%s:%s} to already finished span", key, value);
         tags.put(key, value);
-        return this;
+        if (value instanceof ValueSupplier) {
+            hasDeferredTags = true;
+        }
     }
 
     @Override
@@ -143,12 +278,43 @@ public final class MockSpan implements Span {
     }
 
     @Override
-    public final synchronized Span log(long timestampMicros, Map<String, ?> fields) {
-        finishedCheck("Adding logs %s at %d to already finished span", fields, timestampMicros);
-        this.logEntries.add(new LogEntry(timestampMicros, fields));
+    public final Span log(long timestampMicros, Map<String, ?> fields) {
+        if (finished) {
+            finishedCheck("Adding logs %s at %d to already finished span", fields, timestampMicros);
+        }
+        return addLogEntry(new LogEntry(timestampMicros, fields));
+    }
+
+    @Override
+    public final Span log(ValueSupplier<? extends Map<String, ?>> fields) {
+        return log(nowMicros(), fields);
+    }
+
+    @Override
+    public final Span log(long timestampMicros, ValueSupplier<? extends Map<String, ?>> fields) {
+        if (finished) {
+            finishedCheck("Adding deferred logs at %d to already finished span", timestampMicros);
+        }
+        return addLogEntry(new LogEntry(timestampMicros, fields));
+    }
+
+    private Span addLogEntry(LogEntry logEntry) {
+        if (owner != null) {
+            assert ownerCheck();
+            appendLogEntry(logEntry);
+        } else {
+            synchronized (this) {
+                appendLogEntry(logEntry);
+            }
+        }
         return this;
     }
 
+    private void appendLogEntry(LogEntry logEntry) {
+        finishedCheck("Adding log at %d to already finished span", logEntry.timestampMicros());
+        this.logEntries.add(logEntry);
+    }
+
     @Override
     public Span log(String event) {
         return this.log(nowMicros(), event);
@@ -175,14 +341,25 @@ public final class MockSpan implements Span {
     }
 
     @Override
-    public synchronized Span setBaggageItem(String key, String value) {
+    public Span setBaggageItem(String key, String value) {
+        if (owner != null) {
+            assert ownerCheck();
+            addBaggageItem(key, value);
+        } else {
+            synchronized (this) {
+                addBaggageItem(key, value);
+            }
+        }
+        return this;
+    }
+
+    private void addBaggageItem(String key, String value) {
         finishedCheck("Adding baggage {%s:%s} to already finished span", key, value);
         this.context = this.context.withBaggageItem(key, value);
-        return this;
     }
 
     @Override
-    public synchronized String getBaggageItem(String key) {
+    public String getBaggageItem(String key) {
         return this.context.getBaggageItem(key);
     }
 
@@ -230,60 +407,152 @@ public final class MockSpan implements Span {
         }
     }
 
+    /**
+     * A reference from a MockSpan to the context of another span, such as a CHILD_OF parent.
+     *
+     * @see io.opentracing.References
+     */
+    public static final class Reference {
+        private final String referenceType;
+        private final MockContext context;
+
+        public Reference(String referenceType, MockContext context) {
+            this.referenceType = referenceType;
+            this.context = context;
+        }
+
+        public String referenceType() {
+            return referenceType;
+        }
+
+        public MockContext context() {
+            return context;
+        }
+    }
+
     public static final class LogEntry {
         private final long timestampMicros;
-        private final Map<String, ?> fields;
+        private Map<String, ?> fields;
+        private ValueSupplier<? extends Map<String, ?>> deferredFields;
 
         public LogEntry(long timestampMicros, Map<String, ?> fields) {
             this.timestampMicros = timestampMicros;
             this.fields = fields;
         }
 
+        LogEntry(long timestampMicros, ValueSupplier<? extends Map<String, ?>> deferredFields) {
+            this.timestampMicros = timestampMicros;
+            this.deferredFields = deferredFields;
+        }
+
         public long timestampMicros() {
             return timestampMicros;
         }
 
-        public Map<String, ?> fields() {
+        synchronized boolean isDeferred() {
+            return deferredFields != null;
+        }
+
+        /**
+         * @return the log fields; deferred fields are evaluated on first access, and are null if their supplier throws
+         */
+        public synchronized Map<String, ?> fields() {
+            if (deferredFields != null) {
+                ValueSupplier<? extends Map<String, ?>> supplier = deferredFields;
+                deferredFields = null;
+                try {
+                    fields = supplier.get();
+                } catch (RuntimeException ex) {
+                    fields = null;
+                }
+            }
             return fields;
         }
     }
 
-    MockSpan(MockTracer tracer, String operationName, long startMicros, Map<String, Object> initialTags, MockContext parent) {
+    MockSpan(MockTracer tracer, String operationName, long startMicros, Map<String, Object> initialTags,
+            MockContext parent, List<Reference> references) {
+        this(tracer, operationName, startMicros, initialTags, newContext(tracer, parent),
+                parent == null ? 0 : parent.spanId, references, tracer.singleWriterSpans());
+    }
+
+    /**
+     * Creates a span with the given context and parent, e.g. to replay a recorded span.
+     */
+    MockSpan(MockTracer tracer, String operationName, long startMicros, Map<String, Object> initialTags,
+            MockContext context, long parentId, List<Reference> references, boolean singleWriter) {
         this.mockTracer = tracer;
         this.operationName = operationName;
         this.startMicros = startMicros;
+        this.clock = tracer.clock();
+        this.references = references.isEmpty() ? Collections.<Reference>emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(references));
+        this.owner = singleWriter ? Thread.currentThread() : null;
         if (initialTags == null) {
             this.tags = new HashMap<>();
         } else {
             this.tags = new HashMap<>(initialTags);
+            this.hasDeferredTags = !initialTags.isEmpty();
         }
+        this.context = context;
+        this.parentId = parentId;
+    }
+
+    private static MockContext newContext(MockTracer tracer, MockContext parent) {
         if (parent == null) {
             // We're a root Span.
-            this.context = new MockContext(nextId(), nextId(), new HashMap<String, String>());
-            this.parentId = 0;
+            IdGenerator ids = tracer.idGenerator();
+            return new MockContext(ids.nextId(), ids.nextId(), new HashMap<String, String>());
         } else {
             // We're a child Span.
-            this.context = new MockContext(parent.traceId, nextId(), parent.baggage);
-            this.parentId = parent.spanId;
+            return new MockContext(parent.traceId, tracer.idGenerator().nextId(), parent.baggage);
         }
     }
 
-    static long nextId() {
-        return nextId.addAndGet(1);
+    private void resolveDeferredTags() {
+        if (!hasDeferredTags) {
+            return;
+        }
+        Iterator<Map.Entry<String, Object>> iterator = tags.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Object> entry = iterator.next();
+            if (entry.getValue() instanceof ValueSupplier) {
+                try {
+                    entry.setValue(((ValueSupplier<?>) entry.getValue()).get());
+                } catch (RuntimeException ex) {
+                    iterator.remove();
+                    synchronized (errors) {
+                        errors.add(ex);
+                    }
+                }
+            }
+        }
+        // Cleared last, so a reader that sees it false also sees the evaluated values.
+        hasDeferredTags = false;
     }
 
-    static long nowMicros() {
-        return System.currentTimeMillis() * 1000;
+    private long nowMicros() {
+        return clock.nowMicros();
     }
 
-    private synchronized void finishedCheck(String format, Object... args) {
+    private void finishedCheck(String format, Object... args) {
         if (finished) {
             RuntimeException ex = new IllegalStateException(String.format(format, args));
-            errors.add(ex);
+            synchronized (errors) {
+                errors.add(ex);
+            }
             throw ex;
         }
     }
 
+    private boolean ownerCheck() {
+        if (owner != Thread.currentThread()) {
+            throw new IllegalStateException(String.format("Single-writer span %s owned by %s modified from %s",
+                    this, owner.getName(), Thread.currentThread().getName()));
+        }
+        return true;
+    }
+
     @Override
     public String toString() {
         return "{" +
@@ -13,18 +13,30 @@
  */
 package io.opentracing.mock;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import io.opentracing.References;
 import io.opentracing.Span;
 import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
+import io.opentracing.ValueSupplier;
+import io.opentracing.internal.ByteBufferCodec;
+import io.opentracing.internal.IdCodec;
+import io.opentracing.internal.IdGenerator;
 import io.opentracing.propagation.Format;
+import io.opentracing.propagation.HeaderSink;
+import io.opentracing.propagation.KeyedTextMap;
 import io.opentracing.propagation.TextMap;
 
 /**
@@ -36,8 +48,19 @@ import io.opentracing.propagation.TextMap;
  * The MockTracerTest has simple usage examples.
  */
 public class MockTracer implements Tracer {
-    private List<MockSpan> finishedSpans = new ArrayList<>();
+    // A simple-as-possible (consecutive for repeatability) id generator, shared so ids are unique across tracers.
+    private static final IdGenerator SHARED_SEQUENTIAL_IDS = IdGenerator.sequential();
+
+    private volatile FinishedSpanStore finishedSpans = new IndexedSpanStore();
     private final Propagator propagator;
+    private volatile IdGenerator idGenerator = SHARED_SEQUENTIAL_IDS;
+    private volatile boolean singleWriterSpans;
+    private volatile MockClock clock = MockClock.system();
+    private volatile SpanRecorder spanRecorder;
+    /** Signalled as spans finish, only while a thread awaits finished spans */
+    private final ReentrantLock finishedLock = new ReentrantLock();
+    private final Condition spanFinished = finishedLock.newCondition();
+    private final AtomicInteger awaitingThreads = new AtomicInteger();
 
     public MockTracer() {
         this(Propagator.PRINTER);
@@ -50,28 +73,233 @@ public class MockTracer implements Tracer {
         this.propagator = propagator;
     }
 
+    /**
+     * Sets the generator of the ids of spans started from now on, e.g. a fresh {@link IdGenerator#sequential()} for
+     * ids independent of other tracers. By default, ids are consecutive across all MockTracers, taken from one shared
+     * atomic counter: every span start contends on it, so under many threads it dominates the cost of starting spans.
+     * Use {@link IdGenerator#random()}, which keeps its state per thread, for load tests and benchmarks.
+     */
+    public void setIdGenerator(IdGenerator idGenerator) {
+        if (idGenerator == null) {
+            throw new NullPointerException("idGenerator");
+        }
+        this.idGenerator = idGenerator;
+    }
+
+    IdGenerator idGenerator() {
+        return idGenerator;
+    }
+
+    /**
+     * Sets the clock timestamping the spans started from now on, e.g. a {@link MockClock.Virtual} for tests of
+     * timing-dependent code. By default, spans read the wall clock.
+     */
+    public void setClock(MockClock clock) {
+        if (clock == null) {
+            throw new NullPointerException("clock");
+        }
+        this.clock = clock;
+    }
+
+    MockClock clock() {
+        return clock;
+    }
+
+    /**
+     * Appends every span finishing from now on to the recorder, e.g. to compare the span timings of benchmark runs
+     * offline; null to stop recording. The caller remains responsible for closing the recorder.
+     *
+     * Finishing a span then also costs an offer to the recorder's bounded queue, which is written by a background
+     * thread; spans finishing while the queue is full are dropped, see {@link SpanRecorder#dropped()}.
+     */
+    public void setSpanRecorder(SpanRecorder spanRecorder) {
+        this.spanRecorder = spanRecorder;
+    }
+
+    /**
+     * Confines spans started from now on to the thread that started them, so that their mutators take no locks, as
+     * in a production tracer; useful when benchmarking instrumentation against a MockTracer. With assertions enabled,
+     * modifying such a span from another thread throws an IllegalStateException. Other threads may read a span once
+     * it has finished. Disabled by default.
+     */
+    public void setSingleWriterSpans(boolean singleWriterSpans) {
+        this.singleWriterSpans = singleWriterSpans;
+    }
+
+    boolean singleWriterSpans() {
+        return singleWriterSpans;
+    }
+
+    /**
+     * Retains only the last maxSpans finished spans, and only as many of them as fit in maxBytes of estimated heap, in
+     * a ring buffer that grows up to maxSpans as needed. Finishing a span then evicts the oldest ones, so long soak and
+     * performance tests run in bounded memory; {@link #evictedSpans()} counts the evicted spans. The last finished
+     * span is always retained, alone if its estimate exceeds maxBytes. Queries scan the retained spans instead of
+     * looking them up in indexes. Discards the spans finished so far.
+     */
+    public void setRetention(int maxSpans, long maxBytes) {
+        this.finishedSpans = new RingBufferSpanStore(maxSpans, maxBytes);
+    }
+
+    /**
+     * Retains as many of the last finished spans as fit in maxBytes of estimated heap, however many that is.
+     *
+     * @see #setRetention(int, long)
+     */
+    public void setRetention(long maxBytes) {
+        setRetention(Integer.MAX_VALUE, maxBytes);
+    }
+
+    /**
+     * Retains all finished spans, indexed for queries; the default. Discards the spans finished so far.
+     */
+    public void setUnboundedRetention() {
+        this.finishedSpans = new IndexedSpanStore();
+    }
+
+    /**
+     * @return the number of finished spans evicted to stay within the bounds of {@link #setRetention(int, long)}
+     * (since the retention was set or the last call to MockTracer.reset())
+     */
+    public long evictedSpans() {
+        return this.finishedSpans.evicted();
+    }
+
     /**
      * Clear the finishedSpans() queue.
      *
      * Note that this does *not* have any effect on Spans created by MockTracer that have not finish()ed yet; those
      * will still be enqueued in finishedSpans() when they finish().
      */
-    public synchronized void reset() {
-        this.finishedSpans.clear();
+    public void reset() {
+        this.finishedSpans = this.finishedSpans.emptyCopy();
     }
 
     /**
      * @return a copy of all finish()ed MockSpans started by this MockTracer (since construction or the last call to
-     * MockTracer.reset()).
+     * MockTracer.reset()), in the order they finished.
      *
      * @see MockTracer#reset()
+     * @see #finishedSpansView()
+     */
+    public List<MockSpan> finishedSpans() {
+        return new ArrayList<>(this.finishedSpans.all());
+    }
+
+    /**
+     * @return a read-only snapshot of the spans {@link #finishedSpans()} would copy. Taking the snapshot does not copy
+     * the spans, and it does not change as further spans finish.
+     */
+    public List<MockSpan> finishedSpansView() {
+        return this.finishedSpans.all();
+    }
+
+    /**
+     * @return a read-only snapshot of the finished spans of the trace, in the order they finished; looked up in an
+     * index, without scanning all finished spans, unless the retention is bounded
+     */
+    public List<MockSpan> finishedSpansByTraceId(long traceId) {
+        return this.finishedSpans.byTraceId(traceId);
+    }
+
+    /**
+     * @return a read-only snapshot of the finished spans with the operation name, in the order they finished; looked
+     * up in an index, without scanning all finished spans, unless the retention is bounded
+     */
+    public List<MockSpan> finishedSpansByOperationName(String operationName) {
+        return this.finishedSpans.byOperationName(operationName);
+    }
+
+    /**
+     * @return a read-only snapshot of the finished children of the span, or of the finished root spans for 0, in the
+     * order they finished; looked up in an index, without scanning all finished spans, unless the retention is bounded
+     */
+    public List<MockSpan> finishedSpansByParentId(long parentId) {
+        return this.finishedSpans.byParentId(parentId);
+    }
+
+    /**
+     * @return the finished spans the matcher matches, in the order they finished
+     */
+    public List<MockSpan> finishedSpans(SpanMatcher matcher) {
+        return this.finishedSpans.matching(matcher);
+    }
+
+    /**
+     * Blocks until at least count spans have finished (since construction or the last call to MockTracer.reset()).
+     *
+     * @return a read-only snapshot of the finished spans, as {@link #finishedSpansView()}; with bounded retention, fewer
+     * than count spans may remain
+     * @throws TimeoutException if fewer than count spans finished within the timeout
      */
-    public synchronized List<MockSpan> finishedSpans() {
-        return new ArrayList<>(this.finishedSpans);
+    public List<MockSpan> awaitFinishedSpans(int count, long timeout, TimeUnit unit)
+            throws InterruptedException, TimeoutException {
+        long nanos = unit.toNanos(timeout);
+        awaitingThreads.incrementAndGet();
+        finishedLock.lock();
+        try {
+            while (true) {
+                FinishedSpanStore store = finishedSpans;
+                long finished = store.appended();
+                if (finished >= count) {
+                    return store.all();
+                }
+                if (nanos <= 0) {
+                    throw new TimeoutException(String.format("%d of %d spans finished within %d %s",
+                            finished, count, timeout, unit));
+                }
+                nanos = spanFinished.awaitNanos(nanos);
+            }
+        } finally {
+            finishedLock.unlock();
+            awaitingThreads.decrementAndGet();
+        }
     }
 
     /**
-     * Noop method called on {@link Span#finish()}.
+     * Blocks until a span the matcher matches has finished (since construction or the last call to
+     * MockTracer.reset()). Each finished span is matched once, as it is awaited; with bounded retention, spans evicted
+     * before they are matched are skipped.
+     *
+     * @return the first finished span the matcher matches
+     * @throws TimeoutException if no matching span finished within the timeout
+     */
+    public MockSpan awaitFinishedSpan(SpanMatcher matcher, long timeout, TimeUnit unit)
+            throws InterruptedException, TimeoutException {
+        long nanos = unit.toNanos(timeout);
+        FinishedSpanStore store = null;
+        long matched = 0;
+        List<MockSpan> spans = new ArrayList<>();
+        awaitingThreads.incrementAndGet();
+        finishedLock.lock();
+        try {
+            while (true) {
+                if (store != finishedSpans) {
+                    store = finishedSpans;
+                    matched = 0;
+                }
+                spans.clear();
+                matched = store.collectSince(matched, spans);
+                for (MockSpan span : spans) {
+                    if (matcher.matches(span)) {
+                        return span;
+                    }
+                }
+                if (nanos <= 0) {
+                    throw new TimeoutException(String.format("No matching span among %d finished within %d %s",
+                            matched, timeout, unit));
+                }
+                nanos = spanFinished.awaitNanos(nanos);
+            }
+        } finally {
+            finishedLock.unlock();
+            awaitingThreads.decrementAndGet();
+        }
+    }
+
+    /**
+     * Noop method called on {@link Span#finish()}. As spans are recorded without locking, it may be called
+     * concurrently for spans finishing in different threads.
      */
     protected void onSpanFinished(MockSpan mockSpan) {
     }
@@ -100,16 +328,38 @@ public class MockTracer implements Tracer {
             }
         };
 
-        Propagator TEXT_MAP = new Propagator() {
+        /** Strict: a malformed id fails extraction with a {@link NumberFormatException}. */
+        Propagator TEXT_MAP = new TextMapPropagator(false);
+
+        /**
+         * Propagates the ids as decimal {@code traceid} and {@code spanid} entries, matched ignoring case for
+         * {@link Format.Builtin#HTTP_HEADERS}, and delegates ByteBuffer carriers to {@link #BINARY}.
+         */
+        final class TextMapPropagator implements Propagator {
             public static final String SPAN_ID_KEY = "spanid";
             public static final String TRACE_ID_KEY = "traceid";
 
+            private final boolean lenient;
+
+            /**
+             * @param lenient if true, a malformed id yields no context, as a missing one does, instead of throwing
+             */
+            public TextMapPropagator(boolean lenient) {
+                this.lenient = lenient;
+            }
+
             @Override
             public <C> void inject(MockSpan.MockContext ctx, Format<C> format, C carrier) {
                 if (carrier instanceof TextMap) {
                     TextMap textMap = (TextMap) carrier;
                     textMap.put(SPAN_ID_KEY, String.valueOf(ctx.spanId()));
                     textMap.put(TRACE_ID_KEY, String.valueOf(ctx.traceId()));
+                } else if (carrier instanceof HeaderSink) {
+                    HeaderSink headerSink = (HeaderSink) carrier;
+                    headerSink.putHeader(SPAN_ID_KEY, ctx.spanId());
+                    headerSink.putHeader(TRACE_ID_KEY, ctx.traceId());
+                } else if (carrier instanceof ByteBuffer) {
+                    BINARY.inject(ctx, format, carrier);
                 } else {
                     throw new IllegalArgumentException("Unknown carrier");
                 }
@@ -117,30 +367,126 @@ public class MockTracer implements Tracer {
 
             @Override
             public <C> MockSpan.MockContext extract(Format<C> format, C carrier) {
-                Long traceId = null;
-                Long spanId = null;
+                String traceIdValue = null;
+                String spanIdValue = null;
+                boolean ignoreCase = Format.Builtin.HTTP_HEADERS.equals(format);
 
-                if (carrier instanceof TextMap) {
+                if (carrier instanceof KeyedTextMap) {
+                    KeyedTextMap keyedTextMap = (KeyedTextMap) carrier;
+                    traceIdValue = ignoreCase
+                            ? keyedTextMap.getIgnoreCase(TRACE_ID_KEY) : keyedTextMap.get(TRACE_ID_KEY);
+                    spanIdValue = ignoreCase
+                            ? keyedTextMap.getIgnoreCase(SPAN_ID_KEY) : keyedTextMap.get(SPAN_ID_KEY);
+                } else if (carrier instanceof TextMap) {
                     TextMap textMap = (TextMap) carrier;
                     Iterator<Map.Entry<String, String>> iterator = textMap.iterator();
                     while (iterator.hasNext()) {
                         Map.Entry<String, String> entry = iterator.next();
-                        if (TRACE_ID_KEY.equals(entry.getKey())) {
-                            traceId = Long.valueOf(entry.getValue());
-                        } else if (SPAN_ID_KEY.equals(entry.getKey())) {
-                            spanId = Long.valueOf(entry.getValue());
+                        if (matches(TRACE_ID_KEY, entry.getKey(), ignoreCase)) {
+                            traceIdValue = entry.getValue();
+                        } else if (matches(SPAN_ID_KEY, entry.getKey(), ignoreCase)) {
+                            spanIdValue = entry.getValue();
                         }
                     }
+                } else if (carrier instanceof ByteBuffer) {
+                    return BINARY.extract(format, carrier);
                 } else {
                     throw new IllegalArgumentException("Unknown carrier");
                 }
 
-                if (traceId != null && spanId != null) {
-                    return new MockSpan.MockContext(traceId, spanId, Collections.<String, String>emptyMap());
+                if (traceIdValue != null && spanIdValue != null && isValidId(traceIdValue) && isValidId(spanIdValue)) {
+                    return new MockSpan.MockContext(parseId(traceIdValue), parseId(spanIdValue),
+                            Collections.<String, String>emptyMap());
                 }
 
                 return null;
             }
+
+            /**
+             * @return true if the value is a decimal long; false if it is not and this propagator is lenient
+             * @throws NumberFormatException if the value is malformed and this propagator is strict
+             */
+            private boolean isValidId(String value) {
+                int offset = digitsOffset(value);
+                if (IdCodec.isDecimal(value, offset, value.length() - offset)) {
+                    return true;
+                } else if (lenient) {
+                    return false;
+                }
+                throw new NumberFormatException("For input string: \"" + value + "\"");
+            }
+
+            private static long parseId(String value) {
+                int offset = digitsOffset(value);
+                return IdCodec.parseDecimal(value, offset, value.length() - offset);
+            }
+
+            /** Skips a leading '+', which Long.valueOf() accepts, so that such ids are still extracted. */
+            private static int digitsOffset(String value) {
+                return value.length() > 1 && value.charAt(0) == '+' && value.charAt(1) != '-' ? 1 : 0;
+            }
+
+            private boolean matches(String expectedKey, String key, boolean ignoreCase) {
+                return ignoreCase ? expectedKey.equalsIgnoreCase(key) : expectedKey.equals(key);
+            }
+        }
+
+        /**
+         * Encodes the context into a ByteBuffer carrier, starting at its position: a version byte, a flags byte,
+         * the trace and span ids as 8 bytes each, and a varint count of baggage items followed by their varint
+         * length-prefixed UTF-8 keys and values.
+         */
+        Propagator BINARY = new Propagator() {
+            private static final byte VERSION = 1;
+
+            @Override
+            public <C> void inject(MockSpan.MockContext ctx, Format<C> format, C carrier) {
+                if (!(carrier instanceof ByteBuffer)) {
+                    throw new IllegalArgumentException("Unknown carrier");
+                }
+                ByteBuffer buffer = (ByteBuffer) carrier;
+                buffer.put(VERSION);
+                buffer.put((byte) 0);
+                buffer.putLong(ctx.traceId());
+                buffer.putLong(ctx.spanId());
+                int count = 0;
+                for (Map.Entry<String, String> ignored : ctx.baggageItems()) {
+                    count++;
+                }
+                ByteBufferCodec.writeVarint(buffer, count);
+                for (Map.Entry<String, String> entry : ctx.baggageItems()) {
+                    ByteBufferCodec.writeString(buffer, entry.getKey());
+                    ByteBufferCodec.writeString(buffer, entry.getValue());
+                }
+            }
+
+            @Override
+            public <C> MockSpan.MockContext extract(Format<C> format, C carrier) {
+                if (!(carrier instanceof ByteBuffer)) {
+                    throw new IllegalArgumentException("Unknown carrier");
+                }
+                ByteBuffer buffer = (ByteBuffer) carrier;
+                if (buffer.remaining() < 18 || buffer.get() != VERSION) {
+                    throw new IllegalArgumentException("Unsupported binary span context");
+                }
+                buffer.get(); // flags, reserved
+                long traceId = buffer.getLong();
+                long spanId = buffer.getLong();
+                int count = ByteBufferCodec.readVarint(buffer);
+                if (count == ByteBufferCodec.MALFORMED) {
+                    throw new IllegalArgumentException("Corrupt binary span context");
+                }
+                Map<String, String> baggage = new HashMap<>();
+                for (int i = 0; i < count; i++) {
+                    String key = ByteBufferCodec.readString(buffer);
+                    String value = ByteBufferCodec.readString(buffer);
+                    if (key == null || value == null) {
+                        throw new IllegalArgumentException("Corrupt binary span context");
+                    }
+                    baggage.put(key, value);
+                }
+                return new MockSpan.MockContext(traceId, spanId, baggage);
+            }
         };
     }
 
@@ -159,8 +505,25 @@ public class MockTracer implements Tracer {
         return this.propagator.extract(format, carrier);
     }
 
-    synchronized void appendFinishedSpan(MockSpan mockSpan) {
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    void appendFinishedSpan(MockSpan mockSpan) {
         this.finishedSpans.add(mockSpan);
+        SpanRecorder recorder = this.spanRecorder;
+        if (recorder != null) {
+            recorder.record(mockSpan);
+        }
+        if (awaitingThreads.get() > 0) {
+            finishedLock.lock();
+            try {
+                spanFinished.signalAll();
+            } finally {
+                finishedLock.unlock();
+            }
+        }
         this.onSpanFinished(mockSpan);
     }
 
@@ -168,6 +531,7 @@ public class MockTracer implements Tracer {
         private final String operationName;
         private long startMicros;
         private MockSpan.MockContext firstParent;
+        private List<MockSpan.Reference> references = Collections.emptyList();
         private Map<String, Object> initialTags = new HashMap<>();
 
         SpanBuilder(String operationName) {
@@ -189,6 +553,12 @@ public class MockTracer implements Tracer {
                     referenceType.equals(References.CHILD_OF) || referenceType.equals(References.FOLLOWS_FROM))) {
                 this.firstParent = (MockSpan.MockContext)referencedContext;
             }
+            if (referencedContext instanceof MockSpan.MockContext) {
+                if (references.isEmpty()) {
+                    references = new ArrayList<>(2);
+                }
+                references.add(new MockSpan.Reference(referenceType, (MockSpan.MockContext) referencedContext));
+            }
             return this;
         }
 
@@ -210,6 +580,12 @@ public class MockTracer implements Tracer {
             return this;
         }
 
+        @Override
+        public SpanBuilder withTag(String key, ValueSupplier<?> value) {
+            this.initialTags.put(key, value);
+            return this;
+        }
+
         @Override
         public SpanBuilder withStartTimestamp(long microseconds) {
             this.startMicros = microseconds;
@@ -219,9 +595,10 @@ public class MockTracer implements Tracer {
         @Override
         public MockSpan start() {
             if (this.startMicros == 0) {
-                this.startMicros = MockSpan.nowMicros();
+                this.startMicros = clock.nowMicros();
             }
-            return new MockSpan(MockTracer.this, this.operationName, this.startMicros, initialTags, this.firstParent);
+            return new MockSpan(MockTracer.this, this.operationName, this.startMicros, initialTags, this.firstParent,
+                    references);
         }
 
         @Override
@@ -0,0 +1,165 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Retains only the most recently finished spans of a MockTracer: at most maxSpans of them, and only as many as fit in
+ * maxBytes of estimated heap. The oldest spans are evicted as new ones finish, so a long running test does not grow
+ * the heap. The ring grows by doubling up to maxSpans as spans are retained, so that a large maxSpans, e.g.
+ * Integer.MAX_VALUE for a budget-only retention, costs no memory up front. The most recent span is always retained,
+ * even if its estimate alone exceeds maxBytes. Queries scan the bounded ring instead of maintaining indexes.
+ */
+final class RingBufferSpanStore extends FinishedSpanStore {
+
+    /** Rough per-object costs of a span, its context, maps and entries on a 64-bit JVM */
+    private static final int SPAN_BYTES = 160;
+    private static final int ENTRY_BYTES = 48;
+    private static final int VALUE_BYTES = 24;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int maxSpans;
+    private final long maxBytes;
+    private MockSpan[] spans;
+    private long[] sizes;
+    private int head;
+    private int count;
+    private long bytes;
+    private long appended;
+    private long evicted;
+
+    RingBufferSpanStore(int maxSpans, long maxBytes) {
+        if (maxSpans <= 0) {
+            throw new IllegalArgumentException("maxSpans must be positive: " + maxSpans);
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        this.maxSpans = maxSpans;
+        this.maxBytes = maxBytes;
+        this.spans = new MockSpan[Math.min(maxSpans, INITIAL_CAPACITY)];
+        this.sizes = new long[spans.length];
+    }
+
+    @Override
+    void add(MockSpan span) {
+        long size = estimateBytes(span);
+        synchronized (this) {
+            while (count == maxSpans || (count > 0 && bytes + size > maxBytes)) {
+                evictOldest();
+            }
+            if (count == spans.length) {
+                grow();
+            }
+            int tail = (head + count) % spans.length;
+            spans[tail] = span;
+            sizes[tail] = size;
+            count++;
+            bytes += size;
+            appended++;
+        }
+    }
+
+    @Override
+    synchronized long appended() {
+        return appended;
+    }
+
+    @Override
+    synchronized long evicted() {
+        return evicted;
+    }
+
+    @Override
+    List<MockSpan> all() {
+        List<MockSpan> all = new ArrayList<>(Math.min(maxSpans, 64));
+        collectSince(0, all);
+        return Collections.unmodifiableList(all);
+    }
+
+    @Override
+    synchronized long collectSince(long sequence, List<MockSpan> into) {
+        long first = appended - count;
+        for (long s = Math.max(sequence, first); s < appended; s++) {
+            into.add(spans[(int) ((head + s - first) % spans.length)]);
+        }
+        return appended;
+    }
+
+    @Override
+    FinishedSpanStore emptyCopy() {
+        return new RingBufferSpanStore(maxSpans, maxBytes);
+    }
+
+    private void evictOldest() {
+        spans[head] = null;
+        bytes -= sizes[head];
+        head = (head + 1) % spans.length;
+        count--;
+        evicted++;
+    }
+
+    /** Doubles the capacity up to maxSpans, moving the retained spans to the start of the ring. */
+    private void grow() {
+        int capacity = (int) Math.min(maxSpans, 2L * spans.length);
+        MockSpan[] grownSpans = new MockSpan[capacity];
+        long[] grownSizes = new long[capacity];
+        int wrapped = spans.length - head;
+        System.arraycopy(spans, head, grownSpans, 0, wrapped);
+        System.arraycopy(spans, 0, grownSpans, wrapped, head);
+        System.arraycopy(sizes, head, grownSizes, 0, wrapped);
+        System.arraycopy(sizes, 0, grownSizes, wrapped, head);
+        spans = grownSpans;
+        sizes = grownSizes;
+        head = 0;
+    }
+
+    /** Estimates a finished span without evaluating its deferred values, which count as a single value. */
+    static long estimateBytes(MockSpan span) {
+        long size = SPAN_BYTES + chars(span.operationName());
+        for (Map.Entry<String, Object> tag : span.unresolvedTags().entrySet()) {
+            size += ENTRY_BYTES + chars(tag.getKey()) + value(tag.getValue());
+        }
+        for (MockSpan.LogEntry entry : span.logEntriesView()) {
+            size += ENTRY_BYTES;
+            if (entry.isDeferred()) {
+                size += VALUE_BYTES;
+                continue;
+            }
+            Map<String, ?> fields = entry.fields();
+            if (fields == null) {
+                continue;
+            }
+            for (Map.Entry<String, ?> field : fields.entrySet()) {
+                size += ENTRY_BYTES + chars(field.getKey()) + value(field.getValue());
+            }
+        }
+        for (Map.Entry<String, String> item : span.context().baggageItems()) {
+            size += ENTRY_BYTES + chars(item.getKey()) + chars(item.getValue());
+        }
+        return size;
+    }
+
+    private static long value(Object value) {
+        return value instanceof String ? chars((String) value) : VALUE_BYTES;
+    }
+
+    private static long chars(String value) {
+        return value == null ? 0 : VALUE_BYTES + 2L * value.length();
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the spans written by a {@link SpanRecorder} one at a time, and replays each into a MockTracer as a finished
+ * MockSpan, with its recorded ids, timestamps, tags, logs, references and baggage.
+ *
+ * Only the span being read is held in memory. To analyze a large recording in bounded memory, replay it into a tracer
+ * with {@link MockTracer#setRetention(int, long)}, or one overriding {@link MockTracer#onSpanFinished(MockSpan)}.
+ */
+public final class SpanReader implements Closeable {
+
+    private final DataInputStream in;
+    private final List<String> symbols = new ArrayList<>();
+
+    public SpanReader(File file) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+    }
+
+    /**
+     * Reads the next span and finishes it in the tracer, which appends it to its finished spans.
+     *
+     * @return the replayed span, or null at the end of the file
+     * @throws IOException if the file is not a recording, or ends within a span
+     */
+    public MockSpan read(MockTracer tracer) throws IOException {
+        int record;
+        while ((record = in.read()) == SpanRecorder.HEADER) {
+            if (in.readInt() != SpanRecorder.MAGIC) {
+                throw new IOException("Not a span recording");
+            }
+            int version = in.readUnsignedByte();
+            if (version != SpanRecorder.VERSION) {
+                throw new IOException("Unsupported span recording version " + version);
+            }
+            symbols.clear();
+        }
+        if (record < 0) {
+            return null;
+        }
+        if (record != SpanRecorder.SPAN) {
+            throw new IOException("Corrupt span recording: unexpected record " + record);
+        }
+        return readSpan(tracer);
+    }
+
+    /**
+     * Replays all remaining spans into the tracer.
+     *
+     * @return the number of spans replayed
+     */
+    public long replay(MockTracer tracer) throws IOException {
+        long replayed = 0;
+        while (read(tracer) != null) {
+            replayed++;
+        }
+        return replayed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private MockSpan readSpan(MockTracer tracer) throws IOException {
+        long traceId = in.readLong();
+        long spanId = in.readLong();
+        long parentId = in.readLong();
+        String operationName = readSymbol();
+        long startMicros = unZigZag(readVarLong());
+        long finishMicros = startMicros + unZigZag(readVarLong());
+
+        int tagCount = readCount();
+        Map<String, Object> tags = new HashMap<>(tagCount * 2);
+        for (int i = 0; i < tagCount; i++) {
+            tags.put(readSymbol(), readValue());
+        }
+
+        int logCount = readCount();
+        long[] logTimestamps = new long[logCount];
+        List<Map<String, Object>> logFields = new ArrayList<>(logCount);
+        for (int i = 0; i < logCount; i++) {
+            logTimestamps[i] = startMicros + unZigZag(readVarLong());
+            int fieldCount = readCount() - 1;
+            Map<String, Object> fields = fieldCount < 0 ? null : new HashMap<String, Object>(fieldCount * 2);
+            for (int j = 0; j < fieldCount; j++) {
+                fields.put(readSymbol(), readValue());
+            }
+            logFields.add(fields);
+        }
+
+        int referenceCount = readCount();
+        List<MockSpan.Reference> references = new ArrayList<>(referenceCount);
+        for (int i = 0; i < referenceCount; i++) {
+            String referenceType = readSymbol();
+            MockSpan.MockContext referenced = new MockSpan.MockContext(in.readLong(), in.readLong(),
+                    Collections.<String, String>emptyMap());
+            references.add(new MockSpan.Reference(referenceType, referenced));
+        }
+
+        int baggageCount = readCount();
+        Map<String, String> baggage = new HashMap<>(baggageCount * 2);
+        for (int i = 0; i < baggageCount; i++) {
+            baggage.put(readSymbol(), readString());
+        }
+
+        MockSpan span = new MockSpan(tracer, operationName, startMicros, tags,
+                new MockSpan.MockContext(traceId, spanId, baggage), parentId, references, false);
+        for (int i = 0; i < logCount; i++) {
+            span.log(logTimestamps[i], logFields.get(i));
+        }
+        span.finish(finishMicros);
+        return span;
+    }
+
+    private String readSymbol() throws IOException {
+        long index = readVarLong();
+        if (index > 0) {
+            if (index > symbols.size()) {
+                throw new IOException("Corrupt span recording: unknown string " + index);
+            }
+            return symbols.get((int) index - 1);
+        }
+        String value = readString();
+        if (value != null && symbols.size() < SpanRecorder.MAX_SYMBOLS) {
+            symbols.add(value);
+        }
+        return value;
+    }
+
+    private Object readValue() throws IOException {
+        int type = in.readUnsignedByte();
+        switch (type) {
+            case SpanRecorder.NULL:
+                return null;
+            case SpanRecorder.STRING:
+                return readString();
+            case SpanRecorder.TRUE:
+                return Boolean.TRUE;
+            case SpanRecorder.FALSE:
+                return Boolean.FALSE;
+            case SpanRecorder.LONG:
+                return unZigZag(readVarLong());
+            case SpanRecorder.DOUBLE:
+                return in.readDouble();
+            default:
+                throw new IOException("Corrupt span recording: unknown value type " + type);
+        }
+    }
+
+    private String readString() throws IOException {
+        long length = readVarLong();
+        if (length == 0) {
+            return null;
+        }
+        if (length - 1 > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt span recording: string of " + (length - 1) + " bytes");
+        }
+        byte[] bytes = new byte[(int) (length - 1)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int readCount() throws IOException {
+        long count = readVarLong();
+        if (count > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt span recording: count " + count);
+        }
+        return (int) count;
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new EOFException("Corrupt span recording: variable-length number too long");
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
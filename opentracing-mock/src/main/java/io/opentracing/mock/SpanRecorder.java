@@ -0,0 +1,322 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends finished MockSpans to a compact binary file as they finish, to be replayed later by a {@link SpanReader},
+ * e.g. to compare the span timings of benchmark runs of two builds offline.
+ *
+ * Ids are written as fixed 8 bytes, times as variable-length deltas, and repeated strings such as operation names and
+ * tag keys as references to their first occurrence. Every recorder appends a header to the file, so several runs can
+ * be recorded to the same file. The memory used does not depend on the number of spans recorded.
+ *
+ * Spans are written by a background thread, so that finishing a span only costs a queue offer. If the writer falls
+ * behind and the queue is full, further spans are dropped and counted, see {@link #dropped()}, rather than stalling
+ * the instrumented code. {@link #flush()} waits for the queued spans to be written.
+ *
+ * An I/O error stops the recording, without failing the instrumented code; {@link #flush()} and {@link #close()}
+ * rethrow it.
+ *
+ * @see MockTracer#setSpanRecorder(SpanRecorder)
+ */
+public final class SpanRecorder implements Closeable {
+
+    static final int HEADER = 'H';
+    static final int SPAN = 'S';
+    static final int MAGIC = 0x4f544d53;
+    static final int VERSION = 2;
+    /** The number of distinct strings written by reference; further strings are written in full */
+    static final int MAX_SYMBOLS = 4096;
+
+    static final int NULL = 0;
+    static final int STRING = 1;
+    static final int TRUE = 2;
+    static final int FALSE = 3;
+    static final int LONG = 4;
+    static final int DOUBLE = 5;
+
+    static final int DEFAULT_QUEUE_CAPACITY = 8192;
+    /** Queued by {@link #close()} to stop the writer thread */
+    private static final Object END = new Object();
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> symbols = new HashMap<>();
+    private final BlockingQueue<Object> queue;
+    private final Thread writer;
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closing;
+    /** The number of queued spans taken by the writer thread, guarded by this */
+    private long taken;
+    private long recorded;
+    private IOException error;
+
+    /**
+     * Opens the file for appending, creating it if needed, with a queue of {@value #DEFAULT_QUEUE_CAPACITY} spans.
+     */
+    public SpanRecorder(File file) throws IOException {
+        this(file, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Opens the file for appending, creating it if needed.
+     *
+     * @param queueCapacity the number of finished spans waiting to be written, over which spans are dropped
+     */
+    public SpanRecorder(File file, int queueCapacity) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), 1 << 16));
+        out.writeByte(HEADER);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, "SpanRecorder " + file.getName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues the finished span to be written, or drops it if the queue is full or the recorder is closed; called by
+     * the MockTracer the recorder is set on. Never blocks.
+     */
+    public void record(MockSpan span) {
+        if (!closing && queue.offer(span)) {
+            queued.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of spans written
+     */
+    public synchronized long recorded() {
+        return recorded;
+    }
+
+    /**
+     * @return the number of spans not written because the queue was full or the recorder was closed
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Waits for the spans queued so far to be written, and flushes them to the file.
+     */
+    public synchronized void flush() throws IOException {
+        try {
+            while (taken < queued.get() && writer.isAlive()) {
+                wait();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for spans to be written");
+        }
+        rethrow();
+        out.flush();
+    }
+
+    /**
+     * Writes the queued spans and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        closing = true;
+        try {
+            queue.put(END);
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            writer.interrupt();
+        }
+        // spans queued after END, by threads racing with close
+        for (Object span = queue.poll(); span != null; span = queue.poll()) {
+            if (span != END) {
+                dropped.incrementAndGet();
+            }
+        }
+        synchronized (this) {
+            try {
+                rethrow();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            for (Object span = queue.take(); span != END; span = queue.take()) {
+                synchronized (this) {
+                    if (error == null) {
+                        try {
+                            write((MockSpan) span);
+                            recorded++;
+                        } catch (IOException ex) {
+                            error = ex;
+                        }
+                    }
+                    taken++;
+                    notifyAll();
+                }
+            }
+        } catch (InterruptedException ex) {
+            // closing, without writing the remaining spans
+        } finally {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    private void rethrow() throws IOException {
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void write(MockSpan span) throws IOException {
+        MockSpan.MockContext context = span.context();
+        long startMicros = span.startMicros();
+        out.writeByte(SPAN);
+        out.writeLong(context.traceId());
+        out.writeLong(context.spanId());
+        out.writeLong(span.parentId());
+        writeSymbol(span.operationName());
+        writeVarLong(out, zigZag(startMicros));
+        writeVarLong(out, zigZag(span.finishMicros() - startMicros));
+
+        Map<String, Object> tags = span.tagsView();
+        writeVarLong(out, tags.size());
+        for (Map.Entry<String, Object> tag : tags.entrySet()) {
+            writeSymbol(tag.getKey());
+            writeValue(tag.getValue());
+        }
+
+        List<MockSpan.LogEntry> logEntries = span.logEntriesView();
+        writeVarLong(out, logEntries.size());
+        for (MockSpan.LogEntry entry : logEntries) {
+            writeVarLong(out, zigZag(entry.timestampMicros() - startMicros));
+            Map<String, ?> fields = entry.fields();
+            // the number of fields plus one, or 0 for null
+            writeVarLong(out, fields == null ? 0 : fields.size() + 1L);
+            if (fields != null) {
+                for (Map.Entry<String, ?> field : fields.entrySet()) {
+                    writeSymbol(field.getKey());
+                    writeValue(field.getValue());
+                }
+            }
+        }
+
+        List<MockSpan.Reference> references = span.references();
+        writeVarLong(out, references.size());
+        for (MockSpan.Reference reference : references) {
+            writeSymbol(reference.referenceType());
+            out.writeLong(reference.context().traceId());
+            out.writeLong(reference.context().spanId());
+        }
+
+        int baggageItems = 0;
+        for (Map.Entry<String, String> ignored : context.baggageItems()) {
+            baggageItems++;
+        }
+        writeVarLong(out, baggageItems);
+        for (Map.Entry<String, String> item : context.baggageItems()) {
+            writeSymbol(item.getKey());
+            writeString(out, item.getValue());
+        }
+    }
+
+    /**
+     * Writes the index of the string plus one if written before, or 0 and the string.
+     */
+    private void writeSymbol(String value) throws IOException {
+        Integer index = value == null ? null : symbols.get(value);
+        if (index != null) {
+            writeVarLong(out, index + 1);
+            return;
+        }
+        writeVarLong(out, 0);
+        writeString(out, value);
+        if (value != null && symbols.size() < MAX_SYMBOLS) {
+            symbols.put(value, symbols.size());
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte) {
+            out.writeByte(LONG);
+            writeVarLong(out, zigZag(((Number) value).longValue()));
+        } else if (value instanceof Number) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else {
+            out.writeByte(STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    /**
+     * Writes the UTF-8 length of the string plus one, or 0 for null, and its UTF-8 bytes.
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    /**
+     * Writes the unsigned value in 7-bit groups, least significant first.
+     */
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+}
@@ -0,0 +1,363 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The spans of one trace linked into parent/child trees, for latency analysis of finished MockSpans: critical path,
+ * self time and fan-out.
+ *
+ * A span is linked to every span of its trace it references, not only to its {@link MockSpan#parentId()}, so a span
+ * started with several parents has several. Spans whose parents are all missing are roots. Building the trees takes
+ * time linear in the number of spans and references. The analyses sort the children of each span, so they take
+ * O(n log n) time for n spans.
+ *
+ * @see #build(Iterable)
+ */
+public final class TraceTree {
+
+    private static final Comparator<Node> BY_START = new Comparator<Node>() {
+        @Override
+        public int compare(Node a, Node b) {
+            return Long.compare(a.startMicros(), b.startMicros());
+        }
+    };
+
+    private static final Comparator<Node> BY_FINISH_DESCENDING = new Comparator<Node>() {
+        @Override
+        public int compare(Node a, Node b) {
+            return Long.compare(b.finishMicros(), a.finishMicros());
+        }
+    };
+
+    private final long traceId;
+    private final Map<Long, Node> nodes;
+    private final List<Node> roots;
+
+    private TraceTree(long traceId, Map<Long, Node> nodes, List<Node> roots) {
+        this.traceId = traceId;
+        this.nodes = nodes;
+        this.roots = Collections.unmodifiableList(roots);
+    }
+
+    /**
+     * Groups the finished spans by trace, and links the spans of each trace.
+     *
+     * @return the trace trees, by trace id, in the order their first span appears
+     */
+    public static Map<Long, TraceTree> build(Iterable<MockSpan> spans) {
+        Map<Long, Map<Long, Node>> traces = new LinkedHashMap<>();
+        for (MockSpan span : spans) {
+            Long traceId = span.context().traceId();
+            Map<Long, Node> nodes = traces.get(traceId);
+            if (nodes == null) {
+                nodes = new LinkedHashMap<>();
+                traces.put(traceId, nodes);
+            }
+            nodes.put(span.context().spanId(), new Node(span));
+        }
+        Map<Long, TraceTree> trees = new LinkedHashMap<>(traces.size() * 2);
+        for (Map.Entry<Long, Map<Long, Node>> trace : traces.entrySet()) {
+            trees.put(trace.getKey(), link(trace.getKey(), trace.getValue()));
+        }
+        return Collections.unmodifiableMap(trees);
+    }
+
+    private static TraceTree link(long traceId, Map<Long, Node> nodes) {
+        List<Node> roots = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            MockSpan span = node.span;
+            if (span.references().isEmpty()) {
+                node.addParent(nodes.get(span.parentId()));
+            }
+            for (MockSpan.Reference reference : span.references()) {
+                if (reference.context().traceId() == traceId) {
+                    node.addParent(nodes.get(reference.context().spanId()));
+                }
+            }
+            if (node.parents.isEmpty()) {
+                roots.add(node);
+            }
+        }
+        return new TraceTree(traceId, nodes, roots);
+    }
+
+    public long traceId() {
+        return traceId;
+    }
+
+    /**
+     * @return the number of spans in the trace
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * @return the spans without a parent in the trace, in the order they were passed to {@link #build(Iterable)}
+     */
+    public List<Node> roots() {
+        return roots;
+    }
+
+    /**
+     * @return the node of the span, or null if the trace has no such span
+     */
+    public Node node(long spanId) {
+        return nodes.get(spanId);
+    }
+
+    /**
+     * @return the largest number of children of a span
+     */
+    public int maxFanOut() {
+        int max = 0;
+        for (Node node : nodes.values()) {
+            max = Math.max(max, node.children.size());
+        }
+        return max;
+    }
+
+    /**
+     * @return the mean number of children of the spans that have children, or 0 if no span has
+     */
+    public double meanFanOut() {
+        int parents = 0;
+        int children = 0;
+        for (Node node : nodes.values()) {
+            if (!node.children.isEmpty()) {
+                parents++;
+                children += node.children.size();
+            }
+        }
+        return parents == 0 ? 0 : (double) children / parents;
+    }
+
+    /**
+     * @return the critical path from the root that finished last, see {@link #criticalPath(Node)}
+     */
+    public List<Segment> criticalPath() {
+        Node last = null;
+        for (Node root : roots) {
+            if (last == null || root.finishMicros() > last.finishMicros()) {
+                last = root;
+            }
+        }
+        return last == null ? Collections.<Segment>emptyList() : criticalPath(last);
+    }
+
+    /**
+     * Computes the critical path below the span: the sequence of spans that were on the way of its completion.
+     * Walking back from its finish, the time of a span is attributed to the child that finished last before that
+     * time, recursively, and the time no child covers to the span itself.
+     *
+     * @return the segments of the critical path, in chronological order
+     */
+    public List<Segment> criticalPath(Node node) {
+        List<Segment> path = new ArrayList<>();
+        // an explicit stack, as traces may be deeper than the call stack allows
+        Deque<Frame> stack = new ArrayDeque<>();
+        Set<Visit> visited = new HashSet<>();
+        stack.push(new Frame(node, node.finishMicros()));
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            Node current = frame.node;
+            if (frame.next < frame.children.size()) {
+                Node child = frame.children.get(frame.next++);
+                if (child.startMicros() >= frame.cursor || child.finishMicros() <= current.startMicros()) {
+                    continue;
+                }
+                long childEnd = Math.min(child.finishMicros(), frame.cursor);
+                if (childEnd < frame.cursor) {
+                    path.add(new Segment(current, childEnd, frame.cursor));
+                }
+                frame.cursor = Math.max(child.startMicros(), current.startMicros());
+                // a span with several parents may be reached again for the same window
+                if (visited.add(new Visit(child, childEnd))) {
+                    stack.push(new Frame(child, childEnd));
+                }
+            } else {
+                stack.pop();
+                if (frame.cursor > current.startMicros()) {
+                    path.add(new Segment(current, current.startMicros(), frame.cursor));
+                }
+            }
+        }
+        Collections.reverse(path);
+        return Collections.unmodifiableList(path);
+    }
+
+    /** A span on the critical path, with its children by descending finish and the time not yet attributed. */
+    private static final class Frame {
+        private final Node node;
+        private final List<Node> children;
+        private int next;
+        private long cursor;
+
+        Frame(Node node, long endMicros) {
+            this.node = node;
+            this.children = new ArrayList<>(node.children);
+            Collections.sort(children, BY_FINISH_DESCENDING);
+            this.cursor = Math.min(node.finishMicros(), endMicros);
+        }
+    }
+
+    private static final class Visit {
+        private final Node node;
+        private final long endMicros;
+
+        Visit(Node node, long endMicros) {
+            this.node = node;
+            this.endMicros = endMicros;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Visit)) {
+                return false;
+            }
+            Visit other = (Visit) o;
+            return node == other.node && endMicros == other.endMicros;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(node) + (int) (endMicros ^ (endMicros >>> 32));
+        }
+    }
+
+    /**
+     * A span of the trace, with links to its parents and children.
+     */
+    public static final class Node {
+        private final MockSpan span;
+        private final List<Node> parents = new ArrayList<>(1);
+        private final List<Node> children = new ArrayList<>(0);
+
+        Node(MockSpan span) {
+            this.span = span;
+        }
+
+        private void addParent(Node parent) {
+            if (parent != null && parent != this && !parents.contains(parent)) {
+                parents.add(parent);
+                parent.children.add(this);
+            }
+        }
+
+        public MockSpan span() {
+            return span;
+        }
+
+        /**
+         * @return the spans of the trace this span references
+         */
+        public List<Node> parents() {
+            return Collections.unmodifiableList(parents);
+        }
+
+        /**
+         * @return the spans of the trace referencing this span, in the order they were passed to
+         * {@link TraceTree#build(Iterable)}
+         */
+        public List<Node> children() {
+            return Collections.unmodifiableList(children);
+        }
+
+        public long startMicros() {
+            return span.startMicros();
+        }
+
+        public long finishMicros() {
+            return span.finishMicros();
+        }
+
+        public long durationMicros() {
+            return span.finishMicros() - span.startMicros();
+        }
+
+        /**
+         * @return the time of this span not covered by any of its children, with concurrent children counted once
+         */
+        public long selfMicros() {
+            if (children.isEmpty()) {
+                return durationMicros();
+            }
+            List<Node> sorted = new ArrayList<>(children);
+            Collections.sort(sorted, BY_START);
+            long covered = 0;
+            long cursor = startMicros();
+            for (Node child : sorted) {
+                long start = Math.max(child.startMicros(), cursor);
+                long end = Math.min(child.finishMicros(), finishMicros());
+                if (end > start) {
+                    covered += end - start;
+                    cursor = end;
+                }
+            }
+            return durationMicros() - covered;
+        }
+
+        @Override
+        public String toString() {
+            return span.toString();
+        }
+    }
+
+    /**
+     * A time interval of the critical path, spent in the span itself.
+     */
+    public static final class Segment {
+        private final Node node;
+        private final long startMicros;
+        private final long endMicros;
+
+        Segment(Node node, long startMicros, long endMicros) {
+            this.node = node;
+            this.startMicros = startMicros;
+            this.endMicros = endMicros;
+        }
+
+        public Node node() {
+            return node;
+        }
+
+        public long startMicros() {
+            return startMicros;
+        }
+
+        public long endMicros() {
+            return endMicros;
+        }
+
+        public long durationMicros() {
+            return endMicros - startMicros;
+        }
+
+        @Override
+        public String toString() {
+            return node.span().operationName() + "[" + startMicros + ", " + endMicros + "]";
+        }
+    }
+}
@@ -13,6 +13,11 @@
  */
 package io.opentracing.mock;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -65,6 +70,51 @@ public class MockSpanTest {
         Assert.assertEquals(1, tracer.finishedSpans().get(0).generatedErrors().size());
     }
 
+    @Test
+    public void testIsRecording() {
+        MockTracer tracer = new MockTracer();
+        Assert.assertTrue(tracer.isEnabled());
+        Span span = tracer.buildSpan("foo").start();
+        Assert.assertTrue(span.isRecording());
+        span.finish();
+        Assert.assertFalse(span.isRecording());
+    }
+
+    @Test
+    public void testDeferredValuesEvaluatedOnRead() {
+        MockTracer tracer = new MockTracer();
+        AtomicInteger evaluations = new AtomicInteger();
+        Span span = tracer.buildSpan("foo")
+                .withTag("builder", () -> "b" + evaluations.incrementAndGet())
+                .start();
+        span.setTag("span", () -> evaluations.incrementAndGet());
+        span.log(() -> Collections.singletonMap("event", "e" + evaluations.incrementAndGet()));
+        Assert.assertEquals(0, evaluations.get());
+
+        span.finish();
+        Assert.assertEquals(0, evaluations.get());
+        MockSpan finished = tracer.finishedSpans().get(0);
+        Assert.assertEquals(2, finished.tags().size());
+        Assert.assertTrue(finished.tags().get("builder") instanceof String);
+        Assert.assertTrue(finished.tags().get("span") instanceof Integer);
+        Assert.assertTrue(((String) finished.logEntries().get(0).fields().get("event")).startsWith("e"));
+        Assert.assertEquals(3, evaluations.get());
+    }
+
+    @Test
+    public void testFailingDeferredValuesDoNotFailFinish() {
+        MockTracer tracer = new MockTracer();
+        Span span = tracer.buildSpan("foo").start();
+        span.setTag("failing", () -> { throw new IllegalStateException("failing tag"); });
+        span.log(() -> { throw new IllegalStateException("failing log"); });
+        span.finish();
+
+        MockSpan finished = tracer.finishedSpans().get(0);
+        Assert.assertFalse(finished.tags().containsKey("failing"));
+        Assert.assertNull(finished.logEntries().get(0).fields());
+        Assert.assertEquals(1, finished.generatedErrors().size());
+    }
+
     @Test
     public void testAddBaggageAfterFinish() {
         MockTracer tracer = new MockTracer();
@@ -78,4 +128,74 @@ public class MockSpanTest {
         }
         Assert.assertEquals(1, tracer.finishedSpans().get(0).generatedErrors().size());
     }
+
+    @Test
+    public void testTagsAndLogsViewsAfterFinish() {
+        MockTracer tracer = new MockTracer();
+        MockSpan span = (MockSpan) tracer.buildSpan("foo").start();
+        span.setTag("foo", "bar");
+        span.log("event");
+        span.tags().put("mutated", "copy");
+        Assert.assertEquals(1, span.tags().size());
+        span.finish();
+
+        span.tags().put("mutated", "copy");
+        span.logEntries().clear();
+        Assert.assertEquals(1, span.tags().size());
+        Assert.assertEquals(1, span.logEntries().size());
+
+        Assert.assertSame(span.tagsView(), span.tagsView());
+        Assert.assertSame(span.logEntriesView(), span.logEntriesView());
+        Assert.assertEquals("bar", span.tagsView().get("foo"));
+        Assert.assertEquals(1, span.logEntriesView().size());
+        try {
+            span.tagsView().put("foo", "baz");
+            Assert.fail();
+        } catch (UnsupportedOperationException ex) {
+        }
+        try {
+            span.logEntriesView().clear();
+            Assert.fail();
+        } catch (UnsupportedOperationException ex) {
+        }
+    }
+
+    @Test
+    public void testSingleWriterSpan() throws InterruptedException {
+        MockTracer tracer = new MockTracer();
+        tracer.setSingleWriterSpans(true);
+        final MockSpan span = (MockSpan) tracer.buildSpan("foo").start();
+        span.setTag("foo", "bar");
+        span.log("event");
+        span.setBaggageItem("key", "value");
+        span.setOperationName("bar");
+        Assert.assertEquals(1, span.tags().size());
+
+        final List<RuntimeException> errors = new ArrayList<>();
+        Thread other = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    span.setTag("other", "thread");
+                } catch (IllegalStateException ex) {
+                    errors.add(ex);
+                }
+            }
+        });
+        other.start();
+        other.join();
+        Assert.assertEquals(1, errors.size());
+
+        span.finish();
+        Assert.assertFalse(span.isRecording());
+        Assert.assertEquals("bar", tracer.finishedSpans().get(0).operationName());
+        Assert.assertEquals("value", span.getBaggageItem("key"));
+        Assert.assertEquals(1, span.logEntries().size());
+        try {
+            span.setTag("late", "tag");
+            Assert.fail();
+        } catch (IllegalStateException ex) {
+        }
+        Assert.assertEquals(1, span.generatedErrors().size());
+    }
 }
@@ -16,9 +16,13 @@ package io.opentracing.mock;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -26,7 +30,10 @@ import org.junit.Test;
 import io.opentracing.Span;
 import io.opentracing.Tracer;
 import io.opentracing.SpanContext;
+import io.opentracing.internal.IdGenerator;
 import io.opentracing.propagation.Format;
+import io.opentracing.propagation.HeaderBlockWriter;
+import io.opentracing.propagation.TextMap;
 import io.opentracing.propagation.TextMapExtractAdapter;
 import io.opentracing.propagation.TextMapInjectAdapter;
 
@@ -193,4 +200,403 @@ public class MockTracerTest {
         Assert.assertEquals(finishedSpans.get(0).context().traceId(), finishedSpans.get(1).context().traceId());
         Assert.assertEquals(finishedSpans.get(0).context().spanId(), finishedSpans.get(1).parentId());
     }
+
+    @Test
+    public void testBinaryPropagator() {
+        MockTracer tracer = new MockTracer(MockTracer.Propagator.TEXT_MAP);
+        Span parentSpan = tracer.buildSpan("foo").start();
+        parentSpan.setBaggageItem("user", "alice");
+        parentSpan.finish();
+
+        for (ByteBuffer buffer : new ByteBuffer[] {ByteBuffer.allocate(64), ByteBuffer.allocateDirect(64)}) {
+            tracer.inject(parentSpan.context(), Format.Builtin.BINARY, buffer);
+            buffer.flip();
+            MockSpan.MockContext extracted = (MockSpan.MockContext) tracer.extract(Format.Builtin.BINARY, buffer);
+
+            MockSpan.MockContext expected = (MockSpan.MockContext) parentSpan.context();
+            Assert.assertEquals(expected.traceId(), extracted.traceId());
+            Assert.assertEquals(expected.spanId(), extracted.spanId());
+            Assert.assertEquals("alice", extracted.getBaggageItem("user"));
+        }
+    }
+
+    @Test
+    public void testHeaderBlockPropagator() {
+        MockTracer tracer = new MockTracer(MockTracer.Propagator.TEXT_MAP);
+        Span span = tracer.buildSpan("foo").start();
+        MockSpan.MockContext context = (MockSpan.MockContext) span.context();
+        StringBuilder headers = new StringBuilder();
+        tracer.inject(span.context(), Format.Builtin.HEADER_BLOCK, HeaderBlockWriter.http1(headers));
+
+        Assert.assertEquals("spanid: " + context.spanId() + "\r\ntraceid: " + context.traceId() + "\r\n",
+                headers.toString());
+    }
+
+    @Test
+    public void testIdGenerator() {
+        MockTracer tracer = new MockTracer();
+        tracer.setIdGenerator(IdGenerator.sequential());
+        MockSpan parent = (MockSpan) tracer.buildSpan("parent").start();
+        MockSpan child = (MockSpan) tracer.buildSpan("child").asChildOf(parent).start();
+        Assert.assertEquals(1, parent.context().traceId());
+        Assert.assertEquals(2, parent.context().spanId());
+        Assert.assertEquals(1, child.context().traceId());
+        Assert.assertEquals(3, child.context().spanId());
+
+        tracer.setIdGenerator(IdGenerator.random());
+        MockSpan randomChild = (MockSpan) tracer.buildSpan("child").asChildOf(parent).start();
+        Assert.assertEquals(1, randomChild.context().traceId());
+        Assert.assertEquals(2, randomChild.parentId());
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testTextMapPropagatorRejectsMalformedIds() {
+        MockTracer tracer = new MockTracer(MockTracer.Propagator.TEXT_MAP);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("traceid", "7");
+        headers.put("spanid", "not-a-number");
+
+        tracer.extract(Format.Builtin.TEXT_MAP, new TextMapExtractAdapter(headers));
+    }
+
+    @Test
+    public void testTextMapPropagatorAcceptsPlusSign() {
+        MockTracer tracer = new MockTracer(MockTracer.Propagator.TEXT_MAP);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("traceid", "+7");
+        headers.put("spanid", "-8");
+
+        MockSpan.MockContext context = (MockSpan.MockContext) tracer.extract(Format.Builtin.TEXT_MAP,
+                new TextMapExtractAdapter(headers));
+        Assert.assertEquals(7, context.traceId());
+        Assert.assertEquals(-8, context.spanId());
+        headers.put("spanid", "+-8");
+        Assert.assertNull(new MockTracer(new MockTracer.Propagator.TextMapPropagator(true))
+                .extract(Format.Builtin.TEXT_MAP, new TextMapExtractAdapter(headers)));
+    }
+
+    @Test
+    public void testLenientTextMapPropagatorMalformedIds() {
+        MockTracer tracer = new MockTracer(new MockTracer.Propagator.TextMapPropagator(true));
+        Map<String, String> headers = new HashMap<>();
+        headers.put("traceid", "7");
+        headers.put("spanid", "not-a-number");
+
+        Assert.assertNull(tracer.extract(Format.Builtin.TEXT_MAP, new TextMapExtractAdapter(headers)));
+        Assert.assertNull(tracer.extract(Format.Builtin.TEXT_MAP, new IteratorOnlyTextMap(headers)));
+        headers.put("spanid", "99999999999999999999");
+        Assert.assertNull(tracer.extract(Format.Builtin.TEXT_MAP, new TextMapExtractAdapter(headers)));
+    }
+
+    @Test
+    public void testTextMapPropagatorHttpHeadersIgnoresCase() {
+        MockTracer tracer = new MockTracer(MockTracer.Propagator.TEXT_MAP);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("TraceId", "7");
+        headers.put("SpanId", "8");
+
+        MockSpan.MockContext keyed = (MockSpan.MockContext) tracer.extract(Format.Builtin.HTTP_HEADERS,
+                new TextMapExtractAdapter(headers));
+        Assert.assertEquals(7, keyed.traceId());
+        Assert.assertEquals(8, keyed.spanId());
+
+        MockSpan.MockContext iterated = (MockSpan.MockContext) tracer.extract(Format.Builtin.HTTP_HEADERS,
+                new IteratorOnlyTextMap(headers));
+        Assert.assertEquals(7, iterated.traceId());
+        Assert.assertEquals(8, iterated.spanId());
+
+        Assert.assertNull(tracer.extract(Format.Builtin.TEXT_MAP, new TextMapExtractAdapter(headers)));
+    }
+
+    @Test
+    public void testFinishedSpanIndexNullOperationName() {
+        MockTracer tracer = new MockTracer();
+        tracer.buildSpan(null).start().finish();
+        tracer.buildSpan("null").start().finish();
+
+        assertEquals(1, tracer.finishedSpansByOperationName(null).size());
+        assertEquals("null", tracer.finishedSpansByOperationName("null").get(0).operationName());
+    }
+
+    @Test
+    public void testFinishedSpanIndexes() {
+        MockTracer tracer = new MockTracer();
+        MockSpan parent = (MockSpan) tracer.buildSpan("parent").start();
+        Span child = tracer.buildSpan("child").asChildOf(parent).start();
+        child.finish();
+        parent.finish();
+        Span other = tracer.buildSpan("child").start();
+        other.finish();
+
+        List<MockSpan> trace = tracer.finishedSpansByTraceId(parent.context().traceId());
+        assertEquals(2, trace.size());
+        assertEquals("child", trace.get(0).operationName());
+        assertEquals("parent", trace.get(1).operationName());
+
+        assertEquals(2, tracer.finishedSpansByOperationName("child").size());
+        assertEquals(0, tracer.finishedSpansByOperationName("missing").size());
+        assertEquals(1, tracer.finishedSpansByParentId(parent.context().spanId()).size());
+        assertEquals(2, tracer.finishedSpansByParentId(0).size());
+
+        List<MockSpan> children = tracer.finishedSpans(new SpanMatcher() {
+            @Override
+            public boolean matches(MockSpan span) {
+                return span.parentId() != 0;
+            }
+        });
+        assertEquals(1, children.size());
+        assertEquals(child, children.get(0));
+    }
+
+    @Test
+    public void testFinishedSpansSnapshot() {
+        MockTracer tracer = new MockTracer();
+        tracer.buildSpan("first").start().finish();
+        List<MockSpan> snapshot = tracer.finishedSpansView();
+        tracer.buildSpan("second").start().finish();
+
+        assertEquals(1, snapshot.size());
+        assertEquals(2, tracer.finishedSpansView().size());
+        try {
+            snapshot.clear();
+            Assert.fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+        List<MockSpan> copy = tracer.finishedSpans();
+        copy.clear();
+        assertEquals(2, tracer.finishedSpans().size());
+
+        tracer.reset();
+        assertEquals(0, tracer.finishedSpans().size());
+        assertEquals(0, tracer.finishedSpansByOperationName("first").size());
+        assertEquals(1, snapshot.size());
+    }
+
+    @Test
+    public void testConcurrentFinish() throws InterruptedException {
+        final MockTracer tracer = new MockTracer();
+        final int threads = 4;
+        final int spans = 1000;
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < spans; j++) {
+                        tracer.buildSpan("concurrent").start().finish();
+                    }
+                }
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        List<MockSpan> finished = tracer.finishedSpans();
+        assertEquals(threads * spans, finished.size());
+        assertEquals(threads * spans, tracer.finishedSpansByOperationName("concurrent").size());
+        for (MockSpan span : finished) {
+            Assert.assertNotNull(span);
+        }
+    }
+
+    @Test
+    public void testAwaitFinishedSpans() throws Exception {
+        final MockTracer tracer = new MockTracer();
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 3; i++) {
+                    tracer.buildSpan("async" + i).start().finish();
+                }
+            }
+        });
+        worker.start();
+
+        List<MockSpan> finished = tracer.awaitFinishedSpans(3, 10, TimeUnit.SECONDS);
+        assertEquals(3, finished.size());
+        MockSpan last = tracer.awaitFinishedSpan(new SpanMatcher() {
+            @Override
+            public boolean matches(MockSpan span) {
+                return "async2".equals(span.operationName());
+            }
+        }, 10, TimeUnit.SECONDS);
+        assertEquals("async2", last.operationName());
+        worker.join();
+    }
+
+    @Test
+    public void testAwaitFinishedSpansTimeout() throws Exception {
+        MockTracer tracer = new MockTracer();
+        tracer.buildSpan("foo").start().finish();
+        try {
+            tracer.awaitFinishedSpans(2, 10, TimeUnit.MILLISECONDS);
+            Assert.fail();
+        } catch (TimeoutException expected) {
+        }
+        try {
+            tracer.awaitFinishedSpan(new SpanMatcher() {
+                @Override
+                public boolean matches(MockSpan span) {
+                    return "bar".equals(span.operationName());
+                }
+            }, 0, TimeUnit.MILLISECONDS);
+            Assert.fail();
+        } catch (TimeoutException expected) {
+        }
+        assertEquals(1, tracer.awaitFinishedSpans(1, 0, TimeUnit.MILLISECONDS).size());
+    }
+
+    @Test
+    public void testRingBufferRetention() throws Exception {
+        MockTracer tracer = new MockTracer();
+        tracer.setRetention(3, Long.MAX_VALUE);
+        for (int i = 0; i < 5; i++) {
+            tracer.buildSpan("span" + i).start().finish();
+        }
+
+        List<MockSpan> finished = tracer.finishedSpans();
+        assertEquals(3, finished.size());
+        assertEquals("span2", finished.get(0).operationName());
+        assertEquals("span4", finished.get(2).operationName());
+        assertEquals(2, tracer.evictedSpans());
+        assertEquals(0, tracer.finishedSpansByOperationName("span0").size());
+        assertEquals(1, tracer.finishedSpansByOperationName("span3").size());
+        assertEquals(3, tracer.finishedSpansByParentId(0).size());
+        assertEquals(3, tracer.awaitFinishedSpans(5, 0, TimeUnit.MILLISECONDS).size());
+        assertEquals("span3", tracer.awaitFinishedSpan(new SpanMatcher() {
+            @Override
+            public boolean matches(MockSpan span) {
+                return span.operationName().startsWith("span") && !"span2".equals(span.operationName());
+            }
+        }, 0, TimeUnit.MILLISECONDS).operationName());
+
+        tracer.reset();
+        assertEquals(0, tracer.finishedSpans().size());
+        assertEquals(0, tracer.evictedSpans());
+        for (int i = 0; i < 4; i++) {
+            tracer.buildSpan("again").start().finish();
+        }
+        assertEquals(3, tracer.finishedSpans().size());
+        assertEquals(1, tracer.evictedSpans());
+
+        tracer.setUnboundedRetention();
+        for (int i = 0; i < 4; i++) {
+            tracer.buildSpan("unbounded").start().finish();
+        }
+        assertEquals(4, tracer.finishedSpans().size());
+        assertEquals(0, tracer.evictedSpans());
+    }
+
+    @Test
+    public void testRingBufferMemoryBudget() {
+        MockTracer tracer = new MockTracer();
+        MockSpan small = (MockSpan) tracer.buildSpan("small").start();
+        small.finish();
+        long budget = 2 * RingBufferSpanStore.estimateBytes(small);
+        tracer.setRetention(100, budget);
+
+        for (int i = 0; i < 3; i++) {
+            tracer.buildSpan("small").start().finish();
+        }
+        assertEquals(2, tracer.finishedSpans().size());
+        assertEquals(1, tracer.evictedSpans());
+
+        Span large = tracer.buildSpan("large").start();
+        for (int i = 0; i < 100; i++) {
+            large.setTag("tag" + i, "value" + i);
+        }
+        large.finish();
+        assertEquals(1, tracer.finishedSpans().size());
+        assertEquals(3, tracer.evictedSpans());
+
+        MockSpan nullFields = (MockSpan) tracer.buildSpan("small").start();
+        nullFields.log(1, (Map<String, ?>) null);
+        nullFields.finish();
+        assertEquals(nullFields, tracer.finishedSpans().get(0));
+        try {
+            tracer.setRetention(0, budget);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testRingBufferGrowsLazily() {
+        MockTracer tracer = new MockTracer();
+        tracer.setRetention(40, Long.MAX_VALUE);
+        for (int i = 0; i < 100; i++) {
+            tracer.buildSpan("span" + i).start().finish();
+            if (i == 20) {
+                assertEquals(21, tracer.finishedSpans().size());
+                assertEquals("span0", tracer.finishedSpans().get(0).operationName());
+            }
+        }
+        List<MockSpan> finished = tracer.finishedSpans();
+        assertEquals(40, finished.size());
+        assertEquals("span60", finished.get(0).operationName());
+        assertEquals("span99", finished.get(39).operationName());
+        assertEquals(60, tracer.evictedSpans());
+
+        MockSpan small = finished.get(0);
+        tracer.setRetention(20 * RingBufferSpanStore.estimateBytes(small));
+        for (int i = 0; i < 50; i++) {
+            tracer.buildSpan("span" + i).start().finish();
+        }
+        finished = tracer.finishedSpans();
+        assertEquals(20, finished.size());
+        assertEquals("span30", finished.get(0).operationName());
+        assertEquals(30, tracer.evictedSpans());
+    }
+
+    @Test
+    public void testVirtualClock() {
+        MockTracer tracer = new MockTracer();
+        MockClock.Virtual clock = new MockClock.Virtual(1000);
+        tracer.setClock(clock);
+
+        MockSpan span = (MockSpan) tracer.buildSpan("manual").start();
+        clock.advance(5, TimeUnit.MILLISECONDS);
+        span.log("event");
+        clock.advance(250, TimeUnit.MICROSECONDS);
+        span.finish();
+        assertEquals(1000, span.startMicros());
+        assertEquals(6000, span.logEntries().get(0).timestampMicros());
+        assertEquals(6250, span.finishMicros());
+
+        tracer.setClock(new MockClock.Virtual(0, 10));
+        MockSpan stepped = (MockSpan) tracer.buildSpan("stepped").start();
+        stepped.finish();
+        assertEquals(0, stepped.startMicros());
+        assertEquals(10, stepped.finishMicros());
+
+        tracer.setClock(new MockClock.Virtual(0));
+        MockSpan instant = (MockSpan) tracer.buildSpan("instant").start();
+        instant.finish();
+        assertEquals(0, instant.finishMicros());
+
+        tracer.setClock(MockClock.system());
+        long before = System.currentTimeMillis() * 1000;
+        MockSpan system = (MockSpan) tracer.buildSpan("system").start();
+        Assert.assertTrue(system.startMicros() >= before);
+    }
+
+    private static final class IteratorOnlyTextMap implements TextMap {
+        private final Map<String, String> map;
+
+        IteratorOnlyTextMap(Map<String, String> map) {
+            this.map = map;
+        }
+
+        @Override
+        public Iterator<Map.Entry<String, String>> iterator() {
+            return map.entrySet().iterator();
+        }
+
+        @Override
+        public void put(String key, String value) {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
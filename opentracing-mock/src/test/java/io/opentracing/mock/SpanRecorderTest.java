@@ -0,0 +1,158 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.opentracing.References;
+import io.opentracing.Span;
+
+public class SpanRecorderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRecordAndReplay() throws IOException {
+        File file = folder.newFile("spans.bin");
+        MockTracer tracer = new MockTracer();
+        tracer.setClock(new MockClock.Virtual(1000, 5));
+        SpanRecorder recorder = new SpanRecorder(file);
+        tracer.setSpanRecorder(recorder);
+
+        MockSpan parent = tracer.buildSpan("parent").start();
+        parent.setBaggageItem("user", "jane");
+        Span child = tracer.buildSpan("child")
+                .asChildOf(parent)
+                .addReference(References.FOLLOWS_FROM, parent.context())
+                .withTag("string", "value")
+                .withTag("boolean", true)
+                .withTag("long", 42)
+                .withTag("double", 0.5)
+                .start();
+        child.log("event");
+        child.finish();
+        parent.finish();
+        recorder.close();
+        assertEquals(2, recorder.recorded());
+
+        MockTracer replayed = new MockTracer();
+        try (SpanReader reader = new SpanReader(file)) {
+            assertEquals(2, reader.replay(replayed));
+        }
+        List<MockSpan> original = tracer.finishedSpans();
+        List<MockSpan> spans = replayed.finishedSpans();
+        assertEquals(2, spans.size());
+        for (int i = 0; i < spans.size(); i++) {
+            MockSpan expected = original.get(i);
+            MockSpan actual = spans.get(i);
+            assertEquals(expected.operationName(), actual.operationName());
+            assertEquals(expected.context().traceId(), actual.context().traceId());
+            assertEquals(expected.context().spanId(), actual.context().spanId());
+            assertEquals(expected.parentId(), actual.parentId());
+            assertEquals(expected.startMicros(), actual.startMicros());
+            assertEquals(expected.finishMicros(), actual.finishMicros());
+            assertEquals(expected.references().size(), actual.references().size());
+            assertEquals(expected.logEntries().size(), actual.logEntries().size());
+        }
+
+        MockSpan replayedChild = spans.get(0);
+        Map<String, Object> tags = replayedChild.tags();
+        assertEquals("value", tags.get("string"));
+        assertEquals(true, tags.get("boolean"));
+        assertEquals(42L, tags.get("long"));
+        assertEquals(0.5, tags.get("double"));
+        assertEquals("event", replayedChild.logEntries().get(0).fields().get("event"));
+        assertEquals(original.get(0).logEntries().get(0).timestampMicros(),
+                replayedChild.logEntries().get(0).timestampMicros());
+        assertEquals(References.FOLLOWS_FROM, replayedChild.references().get(1).referenceType());
+        assertEquals("jane", spans.get(1).getBaggageItem("user"));
+    }
+
+    @Test
+    public void testAppendedRecordings() throws IOException {
+        File file = folder.newFile("spans.bin");
+        for (int run = 0; run < 2; run++) {
+            MockTracer tracer = new MockTracer();
+            try (SpanRecorder recorder = new SpanRecorder(file)) {
+                tracer.setSpanRecorder(recorder);
+                for (int i = 0; i < 3; i++) {
+                    tracer.buildSpan("run" + run).withTag("key", i).start().finish();
+                }
+            }
+        }
+
+        MockTracer replayed = new MockTracer();
+        replayed.setRetention(2, Long.MAX_VALUE);
+        try (SpanReader reader = new SpanReader(file)) {
+            assertEquals(6, reader.replay(replayed));
+            assertNull(reader.read(replayed));
+        }
+        assertEquals(2, replayed.finishedSpans().size());
+        assertEquals(4, replayed.evictedSpans());
+        assertEquals("run1", replayed.finishedSpans().get(1).operationName());
+        assertEquals(2L, replayed.finishedSpans().get(1).tags().get("key"));
+    }
+
+    @Test
+    public void testNullLogFieldsAndDrops() throws IOException {
+        File file = folder.newFile("spans.bin");
+        MockTracer tracer = new MockTracer();
+        SpanRecorder recorder = new SpanRecorder(file, 1);
+        tracer.setSpanRecorder(recorder);
+        MockSpan span = tracer.buildSpan("op").start();
+        span.log(5, (Map<String, ?>) null);
+        span.log(6, Collections.<String, Object>emptyMap());
+        span.finish();
+        recorder.flush();
+        assertEquals(1, recorder.recorded());
+        recorder.close();
+        tracer.buildSpan("late").start().finish();
+        assertEquals(1, recorder.dropped());
+
+        MockTracer replayed = new MockTracer();
+        try (SpanReader reader = new SpanReader(file)) {
+            assertEquals(1, reader.replay(replayed));
+        }
+        List<MockSpan.LogEntry> logEntries = replayed.finishedSpans().get(0).logEntries();
+        assertNull(logEntries.get(0).fields());
+        assertEquals(Collections.emptyMap(), logEntries.get(1).fields());
+    }
+
+    @Test
+    public void testNotARecording() throws IOException {
+        File file = folder.newFile("spans.bin");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[] {'H', 1, 2, 3, 4, 1});
+        }
+        try (SpanReader reader = new SpanReader(file)) {
+            reader.read(new MockTracer());
+            Assert.fail();
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2016-2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.mock;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import io.opentracing.References;
+
+public class TraceTreeTest {
+
+    @Test
+    public void testCriticalPathSelfTimeAndFanOut() {
+        MockTracer tracer = new MockTracer();
+        tracer.setClock(new MockClock.Virtual(0));
+        MockSpan root = start(tracer, "root", 0);
+        MockSpan a = tracer.buildSpan("a").asChildOf(root).withStartTimestamp(10).start();
+        MockSpan b = tracer.buildSpan("b").asChildOf(root).withStartTimestamp(20).start();
+        MockSpan c = tracer.buildSpan("c").asChildOf(b).withStartTimestamp(30).start();
+        MockSpan m = tracer.buildSpan("m").asChildOf(a).addReference(References.FOLLOWS_FROM, c.context())
+                .withStartTimestamp(55).start();
+        MockSpan other = start(tracer, "other", 5);
+        a.finish(50);
+        m.finish(58);
+        c.finish(60);
+        b.finish(80);
+        other.finish(90);
+        root.finish(100);
+
+        Map<Long, TraceTree> trees = TraceTree.build(tracer.finishedSpans());
+        assertEquals(2, trees.size());
+        TraceTree tree = trees.get(root.context().traceId());
+        assertEquals(5, tree.size());
+        assertEquals(1, tree.roots().size());
+        assertEquals(root, tree.roots().get(0).span());
+        assertEquals(2, m.references().size());
+        assertEquals(2, tree.node(m.context().spanId()).parents().size());
+
+        assertEquals(30, tree.node(root.context().spanId()).selfMicros());
+        assertEquals(27, tree.node(c.context().spanId()).selfMicros());
+        assertEquals(40, tree.node(a.context().spanId()).selfMicros());
+        assertEquals(2, tree.maxFanOut());
+        assertEquals(1.25, tree.meanFanOut(), 0);
+
+        List<String> path = new ArrayList<>();
+        for (TraceTree.Segment segment : tree.criticalPath()) {
+            path.add(segment.toString());
+        }
+        assertEquals("[root[0, 10], a[10, 20], b[20, 30], c[30, 55], m[55, 58], c[58, 60], b[60, 80], root[80, 100]]",
+                path.toString());
+
+        TraceTree single = trees.get(other.context().traceId());
+        assertEquals(1, single.criticalPath().size());
+        assertEquals(0, single.maxFanOut());
+        assertEquals(0, single.meanFanOut(), 0);
+    }
+
+    @Test
+    public void testMissingParentIsRoot() {
+        MockTracer tracer = new MockTracer();
+        tracer.setClock(new MockClock.Virtual(0));
+        MockSpan parent = start(tracer, "parent", 0);
+        MockSpan child = tracer.buildSpan("child").asChildOf(parent).withStartTimestamp(1).start();
+        child.finish(2);
+
+        TraceTree tree = TraceTree.build(tracer.finishedSpans()).get(parent.context().traceId());
+        assertEquals(1, tree.size());
+        assertEquals(child, tree.roots().get(0).span());
+        assertEquals(1, tree.roots().get(0).selfMicros());
+    }
+
+    @Test
+    public void testCriticalPathOfDeepTrace() {
+        MockTracer tracer = new MockTracer();
+        tracer.setClock(new MockClock.Virtual(0));
+        int depth = 50000;
+        List<MockSpan> spans = new ArrayList<>(depth);
+        spans.add(start(tracer, "span", 0));
+        for (int i = 1; i < depth; i++) {
+            spans.add(tracer.buildSpan("span").asChildOf(spans.get(i - 1)).withStartTimestamp(i).start());
+        }
+        for (int i = depth - 1; i >= 0; i--) {
+            spans.get(i).finish(2L * depth - i);
+        }
+
+        TraceTree tree = TraceTree.build(tracer.finishedSpans()).get(spans.get(0).context().traceId());
+        List<TraceTree.Segment> path = tree.criticalPath();
+        assertEquals(2 * depth - 1, path.size());
+        assertEquals(0, path.get(0).startMicros());
+        assertEquals(2L * depth, path.get(path.size() - 1).endMicros());
+    }
+
+    private static MockSpan start(MockTracer tracer, String operationName, long startMicros) {
+        return tracer.buildSpan(operationName).withStartTimestamp(startMicros).start();
+    }
+}
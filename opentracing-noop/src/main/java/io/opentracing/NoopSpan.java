@@ -34,6 +34,9 @@ final class NoopSpanImpl implements NoopSpan {
     @Override
     public void close() { finish(); }
 
+    @Override
+    public boolean isRecording() { return false; }
+
     @Override
     public Span setTag(String key, String value) { return this; }
 
@@ -43,12 +46,21 @@ final class NoopSpanImpl implements NoopSpan {
     @Override
     public Span setTag(String key, Number value) { return this; }
 
+    @Override
+    public Span setTag(String key, ValueSupplier<?> value) { return this; }
+
     @Override
     public Span log(Map<String, ?> fields) { return this; }
 
     @Override
     public Span log(long timestampMicroseconds, Map<String, ?> fields) { return this; }
 
+    @Override
+    public Span log(ValueSupplier<? extends Map<String, ?>> fields) { return this; }
+
+    @Override
+    public Span log(long timestampMicroseconds, ValueSupplier<? extends Map<String, ?>> fields) { return this; }
+
     @Override
     public Span log(String event) { return this; }
 
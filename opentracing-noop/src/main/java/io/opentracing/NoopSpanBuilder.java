@@ -52,6 +52,11 @@ final class NoopSpanBuilderImpl implements NoopSpanBuilder {
         return this;
     }
 
+    @Override
+    public Tracer.SpanBuilder withTag(String key, ValueSupplier<?> value) {
+        return this;
+    }
+
     @Override
     public Tracer.SpanBuilder withStartTimestamp(long microseconds) {
         return this;
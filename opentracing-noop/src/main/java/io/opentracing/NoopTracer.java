@@ -30,6 +30,9 @@ final class NoopTracerImpl implements NoopTracer {
     @Override
     public <C> SpanContext extract(Format<C> format, C carrier) { return NoopSpanBuilderImpl.INSTANCE; }
 
+    @Override
+    public boolean isEnabled() { return false; }
+
     @Override
     public String toString() { return NoopTracer.class.getSimpleName(); }
 
@@ -19,6 +19,9 @@ import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
 import io.opentracing.propagation.Format;
 
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,10 +33,31 @@ import java.util.logging.Logger;
  * during the application initialization phase.<br>
  * If the {@linkplain #register(Tracer) register} method is never called,
  * the default {@link NoopTracer} is used.
+ * <p>
+ * Alternatively, automatic registration can be enabled by setting one of the following system properties:
+ * <ul>
+ * <li>{@value #TRACER_PROPERTY}: the class name of a {@link Tracer} with a public no-arg constructor</li>
+ * <li>{@value #AUTO_REGISTER_PROPERTY}{@code =true}: the first {@link Tracer} found
+ * through the {@link ServiceLoader}</li>
+ * </ul>
+ * The tracer is resolved lazily on the first call to {@link #buildSpan(String) buildSpan},
+ * {@link #inject(SpanContext, Format, Object) inject} or {@link #extract(Format, Object) extract},
+ * so applications that never trace do not pay for loading or starting it.
  */
 public final class GlobalTracer implements Tracer {
     private static final Logger LOGGER = Logger.getLogger(GlobalTracer.class.getName());
 
+    /**
+     * System property naming the {@link Tracer} class to instantiate on first use.
+     */
+    public static final String TRACER_PROPERTY = "opentracing.tracer";
+
+    /**
+     * System property that, when {@code true}, looks up the {@link Tracer} through the {@link ServiceLoader}
+     * on first use.
+     */
+    public static final String AUTO_REGISTER_PROPERTY = "opentracing.tracer.autoRegister";
+
     /**
      * Singleton instance.
      * <p>
@@ -48,7 +72,16 @@ public final class GlobalTracer implements Tracer {
      * The registered {@link Tracer} delegate or the {@link NoopTracer} if none was registered yet.
      * Never {@code null}.
      */
-    private static Tracer tracer = NoopTracerFactory.create();
+    private static volatile Tracer tracer = NoopTracerFactory.create();
+
+    /**
+     * Whether automatic registration was requested and has not completed yet.
+     * Cleared once the first attempt has published its result, or by an explicit
+     * {@linkplain #register(Tracer) registration}, so that callers never observe the {@link NoopTracer}
+     * while the lookup is still in progress.
+     */
+    private static volatile boolean autoRegisterPending =
+            System.getProperty(TRACER_PROPERTY) != null || Boolean.getBoolean(AUTO_REGISTER_PROPERTY);
 
     private GlobalTracer() {
     }
@@ -86,6 +119,7 @@ public final class GlobalTracer implements Tracer {
             LOGGER.log(Level.FINE, "Attempted to register the GlobalTracer as delegate of itself.");
             return; // no-op
         }
+        autoRegisterPending = false;
         if (GlobalTracer.tracer instanceof NoopTracer) {
             GlobalTracer.tracer = tracer;
         } else if (!GlobalTracer.tracer.equals(tracer)) { // be lenient for re-registration of same tracer
@@ -93,19 +127,71 @@ public final class GlobalTracer implements Tracer {
         }
     }
 
+    /**
+     * @return the registered tracer, resolving it first if automatic registration is still pending.
+     */
+    private static Tracer tracer() {
+        if (autoRegisterPending) {
+            autoRegister();
+        }
+        return tracer;
+    }
+
+    private static synchronized void autoRegister() {
+        if (!autoRegisterPending) {
+            return; // resolved or explicitly registered in the meantime
+        }
+        try {
+            Tracer resolved = loadTracer();
+            if (resolved != null && GlobalTracer.tracer instanceof NoopTracer) {
+                LOGGER.log(Level.FINE, "Automatically registered {0} as global tracer.", resolved);
+                GlobalTracer.tracer = resolved;
+            }
+        } finally {
+            autoRegisterPending = false;
+        }
+    }
+
+    private static Tracer loadTracer() {
+        String className = System.getProperty(TRACER_PROPERTY);
+        if (className != null) {
+            try {
+                return (Tracer) Class.forName(className).getConstructor().newInstance();
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Could not instantiate tracer " + className + ", using NoopTracer.", e);
+                return null;
+            }
+        }
+        try {
+            Iterator<Tracer> tracers = ServiceLoader.load(Tracer.class).iterator();
+            if (tracers.hasNext()) {
+                return tracers.next();
+            }
+            LOGGER.log(Level.FINE, "No Tracer service found, using NoopTracer.");
+        } catch (ServiceConfigurationError e) {
+            LOGGER.log(Level.WARNING, "Could not load Tracer service, using NoopTracer.", e);
+        }
+        return null;
+    }
+
     @Override
     public SpanBuilder buildSpan(String operationName) {
-        return tracer.buildSpan(operationName);
+        return tracer().buildSpan(operationName);
     }
 
     @Override
     public <C> void inject(SpanContext spanContext, Format<C> format, C carrier) {
-        tracer.inject(spanContext, format, carrier);
+        tracer().inject(spanContext, format, carrier);
     }
 
     @Override
     public <C> SpanContext extract(Format<C> format, C carrier) {
-        return tracer.extract(format, carrier);
+        return tracer().extract(format, carrier);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return tracer().isEnabled();
     }
 
     @Override
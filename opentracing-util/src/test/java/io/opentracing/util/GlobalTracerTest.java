@@ -17,6 +17,7 @@ import io.opentracing.NoopSpanBuilder;
 import io.opentracing.NoopTracerFactory;
 import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
+import io.opentracing.mock.MockTracer;
 import io.opentracing.propagation.Format;
 import org.junit.After;
 import org.junit.Before;
@@ -26,6 +27,7 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -46,10 +48,24 @@ public class GlobalTracerTest {
         }
     }
 
+    private static void _setAutoRegisterPending(boolean pending) {
+        try {
+            Field pendingField = GlobalTracer.class.getDeclaredField("autoRegisterPending");
+            pendingField.setAccessible(true);
+            pendingField.set(null, pending);
+            pendingField.setAccessible(false);
+        } catch (Exception e) {
+            throw new RuntimeException("Error reflecting autoRegisterPending: " + e.getMessage(), e);
+        }
+    }
+
     @Before
     @After
     public void clearGlobalTracer() {
         _setGlobal(NoopTracerFactory.create());
+        _setAutoRegisterPending(false);
+        System.clearProperty(GlobalTracer.TRACER_PROPERTY);
+        System.clearProperty(GlobalTracer.AUTO_REGISTER_PROPERTY);
     }
 
     @Test
@@ -87,6 +103,98 @@ public class GlobalTracerTest {
         assertThat(spanBuilder, is(instanceOf(NoopSpanBuilder.class)));
     }
 
+    @Test
+    public void testAutoRegister_tracerProperty() {
+        System.setProperty(GlobalTracer.TRACER_PROPERTY, MockTracer.class.getName());
+        _setAutoRegisterPending(true);
+        assertThat(GlobalTracer.get().toString(), containsString("NoopTracer"));
+
+        Tracer.SpanBuilder spanBuilder = GlobalTracer.get().buildSpan("my-operation");
+        assertThat(spanBuilder, is(instanceOf(MockTracer.SpanBuilder.class)));
+    }
+
+    @Test
+    public void testAutoRegister_concurrentCallersWaitForResolution() throws Exception {
+        System.setProperty(GlobalTracer.TRACER_PROPERTY, SlowMockTracer.class.getName());
+        _setAutoRegisterPending(true);
+        SlowMockTracer.constructing = new CountDownLatch(1);
+        SlowMockTracer.release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Tracer.SpanBuilder> first = executor.submit(new Callable<Tracer.SpanBuilder>() {
+                @Override
+                public Tracer.SpanBuilder call() {
+                    return GlobalTracer.get().buildSpan("first");
+                }
+            });
+            assertThat(SlowMockTracer.constructing.await(10, TimeUnit.SECONDS), is(true));
+            final AtomicReference<Thread> secondThread = new AtomicReference<Thread>();
+            Future<Tracer.SpanBuilder> second = executor.submit(new Callable<Tracer.SpanBuilder>() {
+                @Override
+                public Tracer.SpanBuilder call() {
+                    secondThread.set(Thread.currentThread());
+                    return GlobalTracer.get().buildSpan("second");
+                }
+            });
+            awaitBlocked(secondThread);
+            SlowMockTracer.release.countDown();
+
+            assertThat(first.get(10, TimeUnit.SECONDS), is(instanceOf(MockTracer.SpanBuilder.class)));
+            assertThat(second.get(10, TimeUnit.SECONDS), is(instanceOf(MockTracer.SpanBuilder.class)));
+        } finally {
+            SlowMockTracer.release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    /** Waits until the thread is blocked on a monitor, i.e. the second caller waits on autoRegister(). */
+    private static void awaitBlocked(AtomicReference<Thread> thread) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (thread.get() == null || thread.get().getState() != Thread.State.BLOCKED) {
+            assertThat("second caller blocked in time", System.nanoTime() < deadline, is(true));
+            Thread.yield();
+        }
+    }
+
+    public static class SlowMockTracer extends MockTracer {
+        static volatile CountDownLatch constructing;
+        static volatile CountDownLatch release;
+
+        public SlowMockTracer() throws InterruptedException {
+            constructing.countDown();
+            release.await(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testAutoRegister_serviceLoader() {
+        System.setProperty(GlobalTracer.AUTO_REGISTER_PROPERTY, "true");
+        _setAutoRegisterPending(true);
+
+        Tracer.SpanBuilder spanBuilder = GlobalTracer.get().buildSpan("my-operation");
+        assertThat(spanBuilder, is(instanceOf(MockTracer.SpanBuilder.class)));
+    }
+
+    @Test
+    public void testAutoRegister_unknownClassFallsBackToNoop() {
+        System.setProperty(GlobalTracer.TRACER_PROPERTY, "com.example.NoSuchTracer");
+        _setAutoRegisterPending(true);
+
+        Tracer.SpanBuilder spanBuilder = GlobalTracer.get().buildSpan("my-operation");
+        assertThat(spanBuilder, is(instanceOf(NoopSpanBuilder.class)));
+    }
+
+    @Test
+    public void testAutoRegister_explicitRegistrationWins() {
+        System.setProperty(GlobalTracer.TRACER_PROPERTY, MockTracer.class.getName());
+        _setAutoRegisterPending(true);
+        Tracer mockTracer = mock(Tracer.class);
+        GlobalTracer.register(mockTracer);
+        GlobalTracer.get().buildSpan("my-operation");
+
+        verify(mockTracer).buildSpan(eq("my-operation"));
+    }
+
     @Test
     public void testDelegation_buildSpan() {
         Tracer mockTracer = mock(Tracer.class);
@@ -97,6 +205,18 @@ public class GlobalTracerTest {
         verifyNoMoreInteractions(mockTracer);
     }
 
+    @Test
+    public void testDelegation_isEnabled() {
+        assertThat(GlobalTracer.get().isEnabled(), is(false));
+        Tracer mockTracer = mock(Tracer.class);
+        when(mockTracer.isEnabled()).thenReturn(true);
+        GlobalTracer.register(mockTracer);
+
+        assertThat(GlobalTracer.get().isEnabled(), is(true));
+        verify(mockTracer).isEnabled();
+        verifyNoMoreInteractions(mockTracer);
+    }
+
     @Test
     public void testDelegation_inject() {
         Tracer mockTracer = mock(Tracer.class);